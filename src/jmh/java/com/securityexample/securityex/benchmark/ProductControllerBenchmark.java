@@ -0,0 +1,85 @@
+package com.securityexample.securityex.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securityexample.securityex.cache.CatalogVersions;
+import com.securityexample.securityex.controller.ProductController;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.exception.GlobalExceptionHandler;
+import com.securityexample.securityex.json.ProductJsonArrayHttpMessageConverter;
+import com.securityexample.securityex.json.ProductJsonCache;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Spring MVC dispatch of {@link ProductController} through MockMvc, over a stubbed service that returns
+ * fixed results, so the numbers cover routing, argument binding, conditional requests and writing the
+ * response but not the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductControllerBenchmark {
+
+    private MockMvc mockMvc;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Product product = ProductServiceBenchmark.product(1);
+        product.setId(1);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product listed = ProductServiceBenchmark.product(i);
+            listed.setId(i + 1);
+            products.add(listed);
+        }
+        // stubOnly: a plain mock records every invocation, which would grow for the length of the run
+        ProductServiceImpl service = mock(ProductServiceImpl.class, withSettings().stubOnly());
+        when(service.getProductById(1L)).thenReturn(product);
+        when(service.getAllProducts()).thenReturn(products);
+        ProductJsonCache jsonCache = new ProductJsonCache(objectMapper, DataSize.ofMegabytes(64), DataSize.ofKilobytes(1));
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProductController(service, new CatalogVersions(), jsonCache, objectMapper))
+                .setControllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new ProductJsonArrayHttpMessageConverter(),
+                        new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+        etag = mockMvc.perform(get("/api/v1/products/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Benchmark
+    public int getProductById() throws Exception {
+        return mockMvc.perform(get("/api/v1/products/1")).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int getProductByIdNotModified() throws Exception {
+        return mockMvc.perform(get("/api/v1/products/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int getAllProducts() throws Exception {
+        return mockMvc.perform(get("/api/v1/products")).andReturn().getResponse().getStatus();
+    }
+}
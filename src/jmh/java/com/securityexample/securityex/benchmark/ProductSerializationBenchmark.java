@@ -0,0 +1,79 @@
+package com.securityexample.securityex.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.json.ProductJsonArrayHttpMessageConverter;
+import com.securityexample.securityex.json.ProductJsonCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding and decoding of {@code Product} lists at the sizes the list endpoints return,
+ * with the mapper configured the way Spring MVC configures it, against writing the same list from
+ * the pre-serialized fragments of a warm {@link ProductJsonCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<Product> products;
+    private byte[] json;
+    private ProductJsonCache jsonCache;
+    private ProductJsonArrayHttpMessageConverter arrayConverter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(new TypeReference<List<Product>>() {
+        });
+        reader = objectMapper.readerFor(new TypeReference<List<Product>>() {
+        });
+        products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Product product = ProductServiceBenchmark.product(i);
+            product.setId(i + 1);
+            products.add(product);
+        }
+        json = writer.writeValueAsBytes(products);
+        jsonCache = new ProductJsonCache(objectMapper, DataSize.ofMegabytes(64), DataSize.ofKilobytes(1));
+        jsonCache.array(products);
+        arrayConverter = new ProductJsonArrayHttpMessageConverter();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] writeCached() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        arrayConverter.write(jsonCache.array(products), MediaType.APPLICATION_JSON, message);
+        return message.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public List<Product> deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
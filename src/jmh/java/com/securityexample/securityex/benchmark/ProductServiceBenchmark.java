@@ -0,0 +1,103 @@
+package com.securityexample.securityex.benchmark;
+
+import com.securityexample.securityex.SecurityexApplication;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.pagination.SearchPage;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductServiceImpl} read paths against a seeded in-memory H2 database, with the cache and the
+ * in-memory indexes in place as they are in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    static final int CATEGORIES = 20;
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SecurityexApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        service = context.getBean(ProductServiceImpl.class);
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(product(i));
+            if (batch.size() == 10_000 || i == rows - 1) {
+                service.createProducts(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return service.getProductById(randomId());
+    }
+
+    @Benchmark
+    public List<Product> getProductByName() {
+        return service.getProductByName("Product " + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public List<Product> getProductsByCategory() {
+        return service.getProductsByCategory("Category " + ThreadLocalRandom.current().nextInt(CATEGORIES));
+    }
+
+    @Benchmark
+    public CursorPage<Product> getProductsPage() {
+        return service.getProductsPage(null, 100);
+    }
+
+    @Benchmark
+    public CursorPage<Product> getProductsPageByPriceAsc() {
+        return service.getProductsPageByPriceAsc(null, 100);
+    }
+
+    @Benchmark
+    public SearchPage<Product> searchProducts() {
+        return service.searchProducts("wireless", 0, 20);
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(rows);
+    }
+
+    static Product product(int i) {
+        return new Product("Product " + i, "Category " + (i % CATEGORIES), 1 + (i * 37) % 1000 / 10.0,
+                (i % 7 == 0 ? "Wireless device " : "Wired device ") + i + " with a description of typical length");
+    }
+}
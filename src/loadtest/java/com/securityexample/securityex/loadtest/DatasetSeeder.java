@@ -0,0 +1,44 @@
+package com.securityexample.securityex.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fills the products table of the embedded H2 database with generated rows. Rows are produced inside
+ * the database by {@code INSERT ... SELECT} over {@code SYSTEM_RANGE}, so millions of rows take
+ * seconds rather than the hours the JPA write path would.
+ */
+final class DatasetSeeder {
+
+    static final int CATEGORIES = 50;
+    static final String[] WORDS = {"wireless", "ergonomic", "portable", "compact", "premium", "classic", "smart", "solar"};
+
+    private static final long CHUNK = 1_000_000;
+    // Well past the pooled id block Hibernate takes from the sequence, so generated ids never collide
+    private static final long SEQUENCE_GAP = 1_000;
+
+    private DatasetSeeder() {
+    }
+
+    static void seed(JdbcTemplate jdbc, long rows) {
+        long start = System.nanoTime();
+        // Picks a word per row so search queries match a predictable share of the catalog
+        String word = IntStream.range(0, WORDS.length)
+                .mapToObj(i -> "WHEN " + i + " THEN '" + WORDS[i] + "'")
+                .collect(Collectors.joining(" ", "CASE MOD(X, " + WORDS.length + ") ", " END"));
+        for (long from = 1; from <= rows; from += CHUNK) {
+            long to = Math.min(rows, from + CHUNK - 1);
+            jdbc.update("""
+                    INSERT INTO products (id, name, category, price, description, version)
+                    SELECT X, CONCAT('Product ', X), CONCAT('Category ', MOD(X, ?)), MOD(X * 7919, 100000) / 100.0,
+                           CONCAT('A ', %s, ' product numbered ', X), 0
+                    FROM SYSTEM_RANGE(?, ?)
+                    """.formatted(word), CATEGORIES, from, to);
+            System.out.printf("Seeded %d of %d rows%n", to, rows);
+        }
+        jdbc.execute("ALTER SEQUENCE products_seq RESTART WITH " + (rows + SEQUENCE_GAP));
+        System.out.printf("Seeded %d rows in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+}
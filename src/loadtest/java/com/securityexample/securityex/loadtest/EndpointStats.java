@@ -0,0 +1,72 @@
+package com.securityexample.securityex.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latency histogram and outcome counters of one operation, safe to record from many threads. */
+final class EndpointStats {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final Histogram latencyNanos = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(5), 3);
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /** Records a completed request; {@code status} is -1 when no response arrived. */
+    void record(long nanos, int status) {
+        latencyNanos.recordValue(Math.min(nanos, latencyNanos.getHighestTrackableValue()));
+        if (status < 0) {
+            failures.increment();
+        } else if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        } else {
+            succeeded.increment();
+        }
+    }
+
+    long count() {
+        return latencyNanos.getTotalCount();
+    }
+
+    double throughput(Duration duration) {
+        return count() / (duration.toNanos() / 1e9);
+    }
+
+    double percentileMillis(double percentile) {
+        return latencyNanos.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    long errors() {
+        return serverErrors.sum() + failures.sum();
+    }
+
+    Map<String, Object> summary(Duration duration) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            latency.put("p" + (percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile)),
+                    percentileMillis(percentile));
+        }
+        latency.put("max", latencyNanos.getMaxValue() / 1e6);
+        latency.put("mean", latencyNanos.getMean() / 1e6);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count());
+        summary.put("throughput", throughput(duration));
+        summary.put("succeeded", succeeded.sum());
+        summary.put("clientErrors", clientErrors.sum());
+        summary.put("serverErrors", serverErrors.sum());
+        summary.put("failures", failures.sum());
+        summary.put("latencyMillis", latency);
+        return summary;
+    }
+}
@@ -0,0 +1,71 @@
+package com.securityexample.securityex.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options of a load-test run, parsed from {@code --key=value} arguments. Arguments for the
+ * application itself ({@code --spring.*}, {@code --products.*}, {@code --server.*}, {@code --logging.*})
+ * are passed through to it unchanged.
+ */
+record LoadTestConfig(long rows,
+                      int rate,
+                      Duration warmup,
+                      Duration duration,
+                      Map<Operation, Integer> mix,
+                      Path out,
+                      List<String> applicationArgs) {
+
+    static final String DEFAULT_MIX = "get-by-id=40,get-by-name=10,page=15,page-by-price=10,price-range=5,search=10,"
+            + "create=5,update=4,delete=1";
+
+    private static final Set<String> KNOWN_OPTIONS = Set.of("rows", "rate", "warmup", "duration", "mix", "out");
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (key.startsWith("spring.") || key.startsWith("products.") || key.startsWith("server.") || key.startsWith("logging.")) {
+                applicationArgs.add(arg);
+            } else {
+                options.put(key, arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        if (!KNOWN_OPTIONS.containsAll(options.keySet())) {
+            throw new IllegalArgumentException("Unknown options in " + options.keySet() + ", expected " + KNOWN_OPTIONS);
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                Long.parseLong(options.getOrDefault("rows", "10000")),
+                Integer.parseInt(options.getOrDefault("rate", "500")),
+                Duration.parse("PT" + options.getOrDefault("warmup", "10s")),
+                Duration.parse("PT" + options.getOrDefault("duration", "30s")),
+                parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                Path.of(options.getOrDefault("out", "target/loadtest-result.json")),
+                applicationArgs);
+        if (config.rows < 1 || config.rate < 1) {
+            throw new IllegalArgumentException("rows and rate must be positive");
+        }
+        return config;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in the mix but got " + entry);
+            }
+            weights.put(Operation.byName(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
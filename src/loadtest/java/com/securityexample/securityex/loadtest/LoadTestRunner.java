@@ -0,0 +1,157 @@
+package com.securityexample.securityex.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.securityexample.securityex.SecurityexApplication;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the product API. Boots the application on an embedded H2 database, seeds it
+ * with {@link DatasetSeeder}, then sends a weighted mix of {@link Operation}s at a fixed arrival rate.
+ * <p>
+ * Requests are started on schedule whether or not earlier ones have completed, and latency is measured
+ * from the scheduled start rather than the actual send. A stall therefore shows up in the percentiles
+ * of every request that should have been sent during it, instead of being hidden by a client that
+ * waited (coordinated omission). Results go to stdout and, as JSON, to the {@code out} file.
+ */
+public final class LoadTestRunner {
+
+    private static final Map<String, String> APPLICATION_DEFAULTS = Map.of(
+            "server.port", "0",
+            "spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name", "org.h2.Driver",
+            "spring.datasource.username", "sa",
+            "spring.datasource.password", "",
+            "spring.jpa.hibernate.ddl-auto", "create-drop",
+            "spring.jpa.show-sql", "false",
+            "logging.level.root", "WARN");
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        Map<String, String> properties = new LinkedHashMap<>(APPLICATION_DEFAULTS);
+        for (String arg : config.applicationArgs()) {
+            properties.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        String[] applicationArgs = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SecurityexApplication.class).run(applicationArgs)) {
+            DatasetSeeder.seed(new JdbcTemplate(context.getBean(DataSource.class)), config.rows());
+            context.getBean(ProductServiceImpl.class).rebuildIndexes();
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            System.out.printf("Running %s at %d req/s for %s after %s of warmup%n",
+                    config.mix(), config.rate(), config.duration(), config.warmup());
+            Map<Operation, EndpointStats> results = drive(config, "http://localhost:" + port + "/api/v1/products");
+
+            String threads = context.getEnvironment().getProperty("spring.threads.virtual.enabled", "false")
+                    .equals("true") ? "virtual" : "platform";
+            report(config, threads, results, context.getBean(ObjectMapper.class));
+        }
+    }
+
+    private static Map<Operation, EndpointStats> drive(LoadTestConfig config, String baseUrl) {
+        Operation[] operations = config.mix().keySet().toArray(Operation[]::new);
+        int[] cumulativeWeights = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += config.mix().get(operations[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+        Map<Operation, EndpointStats> results = new EnumMap<>(Operation.class);
+        for (Operation operation : operations) {
+            results.put(operation, new EndpointStats());
+        }
+
+        double intervalNanos = 1e9 / config.rate();
+        long begin = System.nanoTime();
+        long measureFrom = begin + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        // Declared first so it is closed last, after the executor has waited for every request
+        try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduled = begin + (long) (i * intervalNanos);
+                if (scheduled >= end) {
+                    break;
+                }
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = pick(operations, cumulativeWeights, totalWeight);
+                EndpointStats stats = scheduled >= measureFrom ? results.get(operation) : null;
+                requests.submit(() -> {
+                    int status;
+                    try {
+                        status = http.send(operation.request(baseUrl, config.rows()), HttpResponse.BodyHandlers.discarding())
+                                .statusCode();
+                    } catch (Exception ex) {
+                        status = -1;
+                    }
+                    if (stats != null) {
+                        stats.record(System.nanoTime() - scheduled, status);
+                    }
+                });
+            }
+        }
+        return results;
+    }
+
+    private static Operation pick(Operation[] operations, int[] cumulativeWeights, int totalWeight) {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < operations.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Weights must be positive");
+    }
+
+    private static void report(LoadTestConfig config, String threads, Map<Operation, EndpointStats> results,
+                               ObjectMapper objectMapper) throws IOException {
+        Duration duration = config.duration();
+        System.out.printf("%-16s %10s %10s %10s %10s %10s %10s %8s%n",
+                "operation", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "p99.99 ms", "max ms", "errors");
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        results.forEach((operation, stats) -> {
+            System.out.printf("%-16s %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %8d%n", operation.displayName(),
+                    stats.throughput(duration), stats.percentileMillis(50), stats.percentileMillis(99),
+                    stats.percentileMillis(99.9), stats.percentileMillis(99.99), stats.percentileMillis(100), stats.errors());
+            endpoints.put(operation.displayName(), stats.summary(duration));
+        });
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rows", config.rows());
+        report.put("rate", config.rate());
+        report.put("threads", threads);
+        report.put("warmupSeconds", config.warmup().toSeconds());
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("endpoints", endpoints);
+        Files.createDirectories(config.out().toAbsolutePath().getParent());
+        objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(config.out().toFile(), report);
+        System.out.println("Wrote " + config.out());
+    }
+}
@@ -0,0 +1,122 @@
+package com.securityexample.securityex.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** The requests a load test can mix, each against a random row of the seeded dataset. */
+enum Operation {
+
+    GET_BY_ID("get-by-id") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "/" + randomId(rows));
+        }
+    },
+    GET_BY_NAME("get-by-name") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "/name/Product%20" + randomId(rows));
+        }
+    },
+    CATEGORY("category") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "/category/Category%20" + ThreadLocalRandom.current().nextInt(DatasetSeeder.CATEGORIES));
+        }
+    },
+    CATEGORY_COUNTS("category-counts") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "/categories");
+        }
+    },
+    PAGE("page") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "?limit=50");
+        }
+    },
+    PAGE_BY_PRICE("page-by-price") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "/price/asc?limit=50");
+        }
+    },
+    PRICE_RANGE("price-range") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            int min = ThreadLocalRandom.current().nextInt(990);
+            return get(baseUrl + "/price/range?min=" + min + "&max=" + (min + 10) + "&limit=50");
+        }
+    },
+    SEARCH("search") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return get(baseUrl + "/search?q=" + DatasetSeeder.WORDS[ThreadLocalRandom.current().nextInt(DatasetSeeder.WORDS.length)]);
+        }
+    },
+    CREATE("create") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return builder(baseUrl).header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body())).build();
+        }
+    },
+    UPDATE("update") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return builder(baseUrl + "/" + randomId(rows)).header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body())).build();
+        }
+    },
+    DELETE("delete") {
+        @Override
+        HttpRequest request(String baseUrl, long rows) {
+            return builder(baseUrl + "/" + randomId(rows)).DELETE().build();
+        }
+    };
+
+    // Requests still unanswered after this count as failures
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    abstract HttpRequest request(String baseUrl, long rows);
+
+    String displayName() {
+        return name;
+    }
+
+    static Operation byName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + name);
+    }
+
+    private static HttpRequest get(String url) {
+        return builder(url).GET().build();
+    }
+
+    private static HttpRequest.Builder builder(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT);
+    }
+
+    private static long randomId(long rows) {
+        return 1 + ThreadLocalRandom.current().nextLong(rows);
+    }
+
+    private static String body() {
+        int n = ThreadLocalRandom.current().nextInt(1_000_000);
+        return "{\"name\":\"Load product " + n + "\",\"category\":\"Category " + n % DatasetSeeder.CATEGORIES
+                + "\",\"price\":" + (n % 100_000) / 100.0 + ",\"description\":\"Created by the load test\"}";
+    }
+}
@@ -0,0 +1,249 @@
+package com.securityexample.securityex.accesslog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log written off the request path. Request threads hand an {@link AccessLogRecord} to a
+ * bounded {@link RingBuffer} and return; a single background thread drains it in batches and appends one
+ * JSON line per record, flushing once per batch. When the buffer is full the record is dropped and counted
+ * rather than making the request wait. Successful requests are sampled at {@code products.access-log.sample-rate};
+ * server errors are always kept.
+ */
+@Component
+public class AccessLog implements SmartLifecycle, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+
+    private static final long IDLE_PARK_NANOS = Duration.ofMillis(5).toNanos();
+
+    private final boolean enabled;
+    private final Path file;
+    private final double sampleRate;
+    private final int batchSize;
+    private final RingBuffer<AccessLogRecord> buffer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AccessLog(@Value("${products.access-log.enabled:true}") boolean enabled,
+                     @Value("${products.access-log.file:logs/access.log}") Path file,
+                     @Value("${products.access-log.sample-rate:1.0}") double sampleRate,
+                     @Value("${products.access-log.buffer-size:8192}") int bufferSize,
+                     @Value("${products.access-log.batch-size:512}") int batchSize) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("products.access-log.sample-rate must be between 0 and 1: " + sampleRate);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("products.access-log.batch-size must be positive: " + batchSize);
+        }
+        this.enabled = enabled;
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.batchSize = batchSize;
+        this.buffer = new RingBuffer<>(bufferSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Whether a request that ended with {@code status} should be logged. Decided before the record is built. */
+    public boolean sample(int status) {
+        return running
+                && (status >= 500 || sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /** Queues the record for the writer thread; returns {@code false}, counting a drop, if the buffer is full. */
+    public boolean offer(AccessLogRecord record) {
+        if (buffer.offer(record)) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("products.access.log.written", written, AtomicLong::get)
+                .description("Access log records written").register(registry);
+        FunctionCounter.builder("products.access.log.dropped", dropped, AtomicLong::get)
+                .description("Access log records dropped because the buffer was full").register(registry);
+        FunctionCounter.builder("products.access.log.failed", failed, AtomicLong::get)
+                .description("Access log records lost to write errors").register(registry);
+        Gauge.builder("products.access.log.pending", buffer, RingBuffer::size)
+                .description("Access log records waiting for the writer").register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writerThread = Thread.ofPlatform().name("access-log-writer").daemon().start(this::drain);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(Duration.ofSeconds(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        Writer out = open();
+        StringBuilder batch = new StringBuilder(batchSize * 192);
+        while (true) {
+            // Read the flag before draining so that records queued before stop() are still written
+            boolean stopping = !running;
+            int count = 0;
+            AccessLogRecord record;
+            while (count < batchSize && (record = buffer.poll()) != null) {
+                format(record, batch);
+                count++;
+            }
+            if (count > 0) {
+                out = write(out, batch, count);
+                batch.setLength(0);
+            } else if (stopping) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        close(out);
+    }
+
+    private Writer open() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            return Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (IOException ex) {
+            logger.error("Cannot open access log {}", file, ex);
+            return null;
+        }
+    }
+
+    private Writer write(Writer out, CharSequence batch, int count) {
+        if (out == null) {
+            out = open();
+        }
+        if (out != null) {
+            try {
+                out.append(batch);
+                out.flush();
+                written.addAndGet(count);
+                return out;
+            } catch (IOException ex) {
+                logger.error("Failed to write {} access log records to {}", count, file, ex);
+                close(out);
+            }
+        }
+        failed.addAndGet(count);
+        // Reopened on the next batch
+        return null;
+    }
+
+    private void close(Writer out) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException ex) {
+            logger.warn("Failed to close access log {}", file, ex);
+        }
+    }
+
+    static void format(AccessLogRecord record, StringBuilder out) {
+        out.append("{\"time\":\"").append(Instant.ofEpochMilli(record.epochMillis())).append('"');
+        out.append(",\"method\":");
+        appendString(out, record.method());
+        out.append(",\"path\":");
+        appendString(out, record.path());
+        if (record.query() != null) {
+            out.append(",\"query\":");
+            appendString(out, record.query());
+        }
+        out.append(",\"status\":").append(record.status());
+        out.append(",\"durationMicros\":").append(record.durationMicros());
+        out.append(",\"remote\":");
+        appendString(out, record.remoteAddress());
+        out.append(",\"virtualThread\":").append(record.virtualThread());
+        out.append("}\n");
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
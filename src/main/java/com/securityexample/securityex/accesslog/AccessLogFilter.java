@@ -0,0 +1,87 @@
+package com.securityexample.securityex.accesslog;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Times every request and hands one {@link AccessLogRecord} to the {@link AccessLog}. Ordered ahead of the
+ * other filters so that the duration covers them and requests shed by the concurrency limit are logged too.
+ * For async requests, such as the NDJSON export, the record is taken when the response completes.
+ * Actuator requests are not logged: scrapes would outnumber everything else.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private final AccessLog accessLog;
+
+    public AccessLogFilter(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !accessLog.isEnabled()
+                || request.getRequestURI().startsWith(request.getContextPath() + ACTUATOR_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        boolean virtualThread = Thread.currentThread().isVirtual();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (!completed) {
+                // The exception reaches the container, which answers 500 whatever the status was so far
+                log(request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, startMillis, startNanos, virtualThread);
+            } else if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        log(request, response.getStatus(), startMillis, startNanos, virtualThread);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                log(request, response.getStatus(), startMillis, startNanos, virtualThread);
+            }
+        }
+    }
+
+    private void log(HttpServletRequest request, int status, long startMillis, long startNanos, boolean virtualThread) {
+        if (!accessLog.sample(status)) {
+            return;
+        }
+        long durationMicros = (System.nanoTime() - startNanos) / 1_000;
+        accessLog.offer(new AccessLogRecord(startMillis, request.getMethod(), request.getRequestURI(),
+                request.getQueryString(), status, durationMicros, request.getRemoteAddr(), virtualThread));
+    }
+}
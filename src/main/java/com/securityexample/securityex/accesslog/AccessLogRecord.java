@@ -0,0 +1,9 @@
+package com.securityexample.securityex.accesslog;
+
+/**
+ * One handled request as written to the access log. Captured on the request thread with raw values only;
+ * formatting happens on the writer thread.
+ */
+public record AccessLogRecord(long epochMillis, String method, String path, String query, int status,
+                              long durationMicros, String remoteAddress, boolean virtualThread) {
+}
@@ -0,0 +1,12 @@
+package com.securityexample.securityex.bulk;
+
+/**
+ * Outcome of one item of a bulk request. {@code index} is the item's position in the request;
+ * {@code error} is only set for {@link BulkItemStatus#FAILED} items.
+ */
+public record BulkItemResult(int index, Long id, BulkItemStatus status, String error) {
+
+    public static BulkItemResult failed(int index, Long id, String error) {
+        return new BulkItemResult(index, id, BulkItemStatus.FAILED, error);
+    }
+}
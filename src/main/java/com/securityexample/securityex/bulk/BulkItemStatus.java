@@ -0,0 +1,9 @@
+package com.securityexample.securityex.bulk;
+
+public enum BulkItemStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    FAILED
+}
@@ -0,0 +1,19 @@
+package com.securityexample.securityex.bulk;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Response of a bulk request: per-item results in request order plus success and failure counts.
+ * Items reported as {@link BulkItemStatus#NOT_FOUND} count as failed.
+ */
+public record BulkResult(int succeeded, int failed, List<BulkItemResult> items) {
+
+    public static BulkResult of(BulkItemResult[] results) {
+        List<BulkItemResult> items = Arrays.asList(results);
+        int failed = (int) items.stream()
+                .filter(item -> item.status() == BulkItemStatus.FAILED || item.status() == BulkItemStatus.NOT_FOUND)
+                .count();
+        return new BulkResult(items.size() - failed, failed, items);
+    }
+}
@@ -0,0 +1,12 @@
+package com.securityexample.securityex.bulk;
+
+import com.securityexample.securityex.entity.Product;
+
+import java.util.List;
+
+/**
+ * Response of a multi-id lookup: the products found, in the order their ids were requested, and the
+ * requested ids that do not exist.
+ */
+public record MultiGetResult(List<Product> products, List<Long> missing) {
+}
@@ -0,0 +1,65 @@
+package com.securityexample.securityex.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counters behind the ETags of listings, so a conditional GET of a listing can be
+ * answered before the database or Jackson is involved. A single product is tagged with its persisted
+ * {@code version} instead, which every instance agrees on.
+ * <p>
+ * The service write paths bump the counters after their change has committed, and the change feed
+ * poll bumps them for changes committed through other instances. A tag taken before a read can
+ * therefore be older than the data it is sent with but never newer, and the worst a race costs is
+ * one extra full response. Tags start with a per-process epoch, so tags issued before a restart, or
+ * by another instance, never match.
+ */
+@Component
+public class CatalogVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Bumped when it is not known which products or categories changed, e.g. after an index rebuild
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong catalog = new AtomicLong();
+    private final AtomicLong allCategories = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> categories = new ConcurrentHashMap<>();
+
+    /** Tag of the whole catalog listing. */
+    public String catalogTag() {
+        return epoch + "-" + generation.get() + "-" + catalog.get();
+    }
+
+    /** Tag of the listing of {@code category}. */
+    public String categoryTag(String category) {
+        AtomicLong version = categories.get(category);
+        return epoch + "-" + generation.get() + "-" + allCategories.get() + "." + (version == null ? 0 : version.get());
+    }
+
+    /** Tag of a product at {@code version}, the same on every instance. */
+    public static String productTag(long version) {
+        return "v" + version;
+    }
+
+    /** Records a write to a product in each of the given categories; null categories are skipped. */
+    public void productChanged(String... categoriesTouched) {
+        for (String category : categoriesTouched) {
+            if (category != null) {
+                categories.computeIfAbsent(category, key -> new AtomicLong()).incrementAndGet();
+            }
+        }
+        catalog.incrementAndGet();
+    }
+
+    /** Records a change to categories that cannot be named, invalidating every category listing. */
+    public void allCategoriesChanged() {
+        allCategories.incrementAndGet();
+    }
+
+    /** Invalidates every tag handed out so far. */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+}
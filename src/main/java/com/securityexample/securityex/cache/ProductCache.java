@@ -0,0 +1,104 @@
+package com.securityexample.securityex.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.securityexample.securityex.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, in-process cache of products keyed by id. Caffeine's W-TinyLFU policy keeps
+ * frequently read products resident; absent ids are cached as empty entries with a shorter TTL
+ * so repeated lookups of missing products do not reach the database. Writes invalidate entries
+ * instead of replacing them, and cached instances are shared between readers, so they are never
+ * modified.
+ */
+@Component
+public class ProductCache implements MeterBinder {
+
+    private final Cache<Long, Optional<Product>> cache;
+
+    public ProductCache(@Value("${products.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${products.cache.ttl:10m}") Duration ttl,
+                        @Value("${products.cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new PresenceAwareExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached entry for {@code id}, calling {@code loader} on a miss. Concurrent misses
+     * for the same id wait for a single load.
+     */
+    public Optional<Product> get(long id, Function<Long, Optional<Product>> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * Returns the cached entries for {@code ids}, loading all the misses with one call to {@code loader}.
+     * Ids the loader does not return are cached as absent.
+     */
+    public Map<Long, Optional<Product>> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, Product>> loader) {
+        return cache.getAll(ids, missing -> {
+            Map<Long, Product> found = loader.apply(Set.copyOf(missing));
+            Map<Long, Optional<Product>> entries = new HashMap<>(missing.size() * 2);
+            for (Long id : missing) {
+                entries.put(id, Optional.ofNullable(found.get(id)));
+            }
+            return entries;
+        });
+    }
+
+    public void invalidate(long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /** Publishes size, hits, misses, evictions and load times as {@code cache.*} meters tagged {@code cache=products}. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "products");
+    }
+
+    public ProductCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new ProductCacheStats(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), stats.loadCount(), stats.loadFailureCount(), stats.averageLoadPenalty());
+    }
+
+    private record PresenceAwareExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Long, Optional<Product>> {
+
+        @Override
+        public long expireAfterCreate(Long id, Optional<Product> product, long currentTime) {
+            return product.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long id, Optional<Product> product, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, product, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long id, Optional<Product> product, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.securityexample.securityex.cache;
+
+/**
+ * Point-in-time counters of the {@link ProductCache}. Load penalty is the mean time, in
+ * nanoseconds, spent loading a missing entry from the database.
+ */
+public record ProductCacheStats(long size,
+                                long hitCount,
+                                long missCount,
+                                double hitRate,
+                                long evictionCount,
+                                long loadCount,
+                                long loadFailureCount,
+                                double averageLoadPenaltyNanos) {
+}
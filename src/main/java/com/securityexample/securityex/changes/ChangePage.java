@@ -0,0 +1,13 @@
+package com.securityexample.securityex.changes;
+
+import com.securityexample.securityex.entity.ProductChange;
+
+import java.util.List;
+
+/**
+ * One page of the change feed. {@code next} is the {@code since} to ask for next, the last
+ * {@code seq} of this page, or the requested one when the page is empty. {@code more} tells whether
+ * further changes are already waiting.
+ */
+public record ChangePage(List<ProductChange> changes, long next, boolean more) {
+}
@@ -0,0 +1,268 @@
+package com.securityexample.securityex.changes;
+
+import com.securityexample.securityex.entity.ProductChange;
+import com.securityexample.securityex.repository.ProductChangeRepository;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the product change outbox, page by page for pull consumers and as Server-Sent Events for
+ * push consumers. Both only see changes at least {@code products.changes.settle-delay} old: a
+ * transaction that took its {@code seq} earlier may still be committing, and a consumer that moved
+ * past it would never see it. {@code changedAt} comes from the writing instance's clock when the
+ * change is appended, before commit, so the delay only covers write transactions that commit within
+ * it, less the skew between the clocks of the instances; it must be set above both together.
+ * <p>
+ * Streams are fed by polling the outbox, so they also carry changes made through other instances;
+ * subscribers at the same position share one query per poll. The same poll follows the whole outbox
+ * for this instance: changes written through other instances evict the cached product and move the
+ * listing tags on, see {@link ProductServiceImpl#onRemoteChange}. The poll only queues events: each
+ * stream is written by its own task, so a slow client never holds up the others. A stream that still
+ * has {@code products.changes.send-queue} events waiting at a poll is closed, and the client resumes
+ * from its last event id when it reconnects.
+ */
+@Component
+public class ProductChangeFeed implements MeterBinder, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeFeed.class);
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final ProductChangeRepository repository;
+    private final ProductChangeLog changeLog;
+    private final ProductServiceImpl service;
+    private final Duration settleDelay;
+    private final Duration retention;
+    private final long streamTimeoutMillis;
+    private final long heartbeatNanos;
+    private final int pushBatchSize;
+    private final int sendQueueCapacity;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // Last change applied to this instance's caches and tags, -1 before the first poll; only used by the polling thread
+    private long followed = -1;
+
+    public ProductChangeFeed(ProductChangeRepository repository, ProductChangeLog changeLog, ProductServiceImpl service,
+                             @Value("${products.changes.settle-delay:1s}") Duration settleDelay,
+                             @Value("${products.changes.retention:7d}") Duration retention,
+                             @Value("${products.changes.stream-timeout:30m}") Duration streamTimeout,
+                             @Value("${products.changes.heartbeat:15s}") Duration heartbeat,
+                             @Value("${products.changes.push-batch-size:500}") int pushBatchSize,
+                             @Value("${products.changes.send-queue:1000}") int sendQueueCapacity) {
+        this.repository = repository;
+        this.changeLog = changeLog;
+        this.service = service;
+        this.settleDelay = settleDelay;
+        this.retention = retention;
+        this.streamTimeoutMillis = streamTimeout.toMillis();
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.pushBatchSize = pushBatchSize;
+        this.sendQueueCapacity = sendQueueCapacity;
+    }
+
+    /** Up to {@code limit} changes after {@code since}, oldest first. */
+    public ChangePage changes(long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Invalid since: " + since);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid limit: " + limit + ", must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // One extra row tells whether more are waiting
+        List<ProductChange> changes = settled(since, limit + 1);
+        boolean more = changes.size() > limit;
+        if (more) {
+            changes = changes.subList(0, limit);
+        }
+        return new ChangePage(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq(), more);
+    }
+
+    /**
+     * Opens a stream of the changes after {@code since}, or of changes from now on when it is
+     * {@code null}. Each event carries the change as JSON and its {@code seq} as event id, so a
+     * reconnecting client resumes where it left off by sending {@code Last-Event-ID}.
+     */
+    public SseEmitter subscribe(Long since) {
+        if (since != null && since < 0) {
+            throw new IllegalArgumentException("Invalid since: " + since);
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(streamTimeoutMillis),
+                since != null ? since : repository.findLastSeq(), sendQueueCapacity);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        logger.debug("Change stream opened after seq {}, {} open", subscriber.cursor, subscribers.size());
+        return subscriber.emitter;
+    }
+
+    /**
+     * Applies the changes other instances committed since the last poll, then queues for every open
+     * stream the changes it has not been given yet, a page per poll at most.
+     */
+    @Scheduled(fixedDelayString = "${products.changes.poll-interval:500}")
+    public void push() {
+        followRemoteChanges();
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<Long, List<ProductChange>> pages = new HashMap<>();
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            // Only this thread adds to the queue, so the room left is all the next events can take
+            int room = subscriber.queue.remainingCapacity();
+            if (room == 0) {
+                drop(subscriber);
+                continue;
+            }
+            List<ProductChange> page = pages.computeIfAbsent(subscriber.cursor, since -> settled(since, pushBatchSize));
+            if (page.size() > room) {
+                page = page.subList(0, room);
+            }
+            for (ProductChange change : page) {
+                subscriber.queue.add(SseEmitter.event()
+                        .id(Long.toString(change.getSeq()))
+                        .data(change, MediaType.APPLICATION_JSON));
+                subscriber.cursor = change.getSeq();
+            }
+            if (!page.isEmpty()) {
+                subscriber.lastSent = now;
+            } else if (now - subscriber.lastSent >= heartbeatNanos) {
+                // Keeps idle connections from being closed by proxies along the way
+                subscriber.queue.add(SseEmitter.event().comment("keepalive"));
+                subscriber.lastSent = now;
+            }
+            if (!subscriber.queue.isEmpty() && subscriber.sending.compareAndSet(false, true)) {
+                senders.execute(() -> send(subscriber));
+            }
+        }
+    }
+
+    // Runs on the subscriber's own task, so only this stream waits for its client
+    private void send(Subscriber subscriber) {
+        do {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = subscriber.queue.poll()) != null) {
+                    subscriber.emitter.send(event);
+                    pushed.increment();
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // The client went away or the stream timed out; it resumes from its last event id
+                subscribers.remove(subscriber);
+                subscriber.queue.clear();
+                logger.debug("Change stream closed: {}", ex.getMessage());
+                return;
+            } finally {
+                subscriber.sending.set(false);
+            }
+            // Events queued while the flag was still set got no task of their own
+        } while (!subscriber.queue.isEmpty() && subscriber.sending.compareAndSet(false, true));
+    }
+
+    private void drop(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        // Completing waits for a send in progress, which for this client may take a while
+        senders.execute(subscriber.emitter::complete);
+        dropped.increment();
+        logger.debug("Change stream at seq {} dropped, its client is not keeping up", subscriber.cursor);
+    }
+
+    private void followRemoteChanges() {
+        if (followed < 0) {
+            // Caches and tags start out empty, so only the changes from now on matter
+            followed = repository.findLastSeq();
+            return;
+        }
+        List<ProductChange> page;
+        do {
+            page = settled(followed, pushBatchSize);
+            for (ProductChange change : page) {
+                if (!changeLog.isLocal(change)) {
+                    service.onRemoteChange(change.getProductId());
+                }
+                followed = change.getSeq();
+            }
+        } while (page.size() == pushBatchSize);
+    }
+
+    /** Drops changes older than {@code products.changes.retention}; consumers further behind must reload. */
+    @Scheduled(cron = "${products.changes.purge-cron:0 0 * * * *}")
+    public void purge() {
+        int purged = repository.deleteChangedBefore(Instant.now().minus(retention));
+        if (purged > 0) {
+            logger.info("Purged {} product changes older than {}", purged, retention);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.changes.subscribers", subscribers, Set::size)
+                .description("Open change streams").register(registry);
+        FunctionCounter.builder("products.changes.pushed", pushed, LongAdder::sum)
+                .description("Change events sent over change streams").register(registry);
+        FunctionCounter.builder("products.changes.dropped", dropped, LongAdder::sum)
+                .description("Change streams closed because their client fell behind").register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+    }
+
+    private List<ProductChange> settled(long since, int limit) {
+        return repository.findBySeqGreaterThanAndChangedAtLessThanEqualOrderBySeqAsc(
+                since, Instant.now().minus(settleDelay), Limit.of(limit));
+    }
+
+    private static final class Subscriber {
+
+        final SseEmitter emitter;
+        // Events queued by the polling thread, sent by at most one task at a time
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        final AtomicBoolean sending = new AtomicBoolean();
+        // Position of the last queued change; only written by the polling thread once subscribed
+        volatile long cursor;
+        long lastSent = System.nanoTime();
+
+        Subscriber(SseEmitter emitter, long cursor, int queueCapacity) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.securityexample.securityex.changes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.entity.ProductChange;
+import com.securityexample.securityex.entity.ProductChangeType;
+import com.securityexample.securityex.patch.ProductPatch;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Appends {@link ProductChange} rows to the outbox read by {@link ProductChangeFeed}. Every method
+ * must run inside the transaction of the write it records, so a change is in the feed exactly when
+ * it committed. Rows are inserted with a JDBC batch: the IDENTITY key would make Hibernate insert
+ * them one statement at a time.
+ */
+@Component
+public class ProductChangeLog {
+
+    private static final String INSERT =
+            "INSERT INTO product_changes (product_id, type, version, changed_at, payload, origin) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+    // Marks the changes written by this instance, see ProductChangeFeed
+    private final String origin = UUID.randomUUID().toString();
+
+    public ProductChangeLog(JdbcTemplate jdbcTemplate, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.writer = objectMapper.writer();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Product> products) {
+        recordWritten(products, ProductChangeType.CREATED);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdated(Collection<Product> products) {
+        recordWritten(products, ProductChangeType.UPDATED);
+    }
+
+    /** Records a patch that brought the product to {@code version}, with only the patched fields. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPatched(long id, long version, ProductPatch patch) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", id);
+        if (patch.name() != null) {
+            fields.put("name", patch.name());
+        }
+        if (patch.category() != null) {
+            fields.put("category", patch.category());
+        }
+        if (patch.price() != null) {
+            fields.put("price", patch.price());
+        }
+        if (patch.description() != null) {
+            fields.put("description", patch.description());
+        }
+        fields.put("version", version);
+        append(List.of(new ProductChange(id, ProductChangeType.UPDATED, version, Instant.now(), json(fields), origin)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Collection<Long> ids) {
+        Instant now = Instant.now();
+        List<ProductChange> changes = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            changes.add(new ProductChange(id, ProductChangeType.DELETED, null, now, null, origin));
+        }
+        append(changes);
+    }
+
+    private void recordWritten(Collection<Product> products, ProductChangeType type) {
+        // Versions are bumped when Hibernate flushes, which would otherwise happen at commit
+        entityManager.flush();
+        Instant now = Instant.now();
+        List<ProductChange> changes = new ArrayList<>(products.size());
+        for (Product product : products) {
+            changes.add(new ProductChange(product.getId(), type, product.getVersion(), now, json(product), origin));
+        }
+        append(changes);
+    }
+
+    private void append(List<ProductChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, changes, changes.size(), (statement, change) -> {
+            statement.setLong(1, change.getProductId());
+            statement.setString(2, change.getType().name());
+            statement.setObject(3, change.getVersion());
+            statement.setObject(4, change.getChangedAt().atOffset(ZoneOffset.UTC));
+            statement.setString(5, change.getPayload());
+            statement.setString(6, change.getOrigin());
+        });
+    }
+
+    /** Whether {@code change} was written by this instance. */
+    public boolean isLocal(ProductChange change) {
+        return origin.equals(change.getOrigin());
+    }
+
+    private String json(Object value) {
+        try {
+            return writer.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize change payload", ex);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.securityexample.securityex.coalesce;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Gathers single-key loads that arrive within a short window into one bulk load. The first caller of a
+ * window opens a batch, waits for the window to pass or the batch to fill, then runs the bulk load on
+ * its own thread and hands each caller its value. No thread of its own is needed, and every caller pays
+ * at most one window of extra latency. Keys the bulk load leaves out resolve to {@code null}, and a
+ * failed bulk load fails every caller of the batch.
+ */
+public final class MicroBatcher<K, V> {
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Function<Set<K>, Map<K, V>> bulkLoader;
+    private final Object lock = new Object();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+
+    // Batch still taking keys; guarded by lock
+    private Batch<K, V> open;
+
+    public MicroBatcher(Duration window, int maxBatchSize, Function<Set<K>, Map<K, V>> bulkLoader) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + maxBatchSize);
+        }
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.bulkLoader = bulkLoader;
+    }
+
+    public V load(K key) {
+        Batch<K, V> batch;
+        CompletableFuture<V> result;
+        boolean first;
+        synchronized (lock) {
+            first = open == null;
+            if (first) {
+                open = new Batch<>();
+            }
+            batch = open;
+            result = batch.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch.futures.size() >= maxBatchSize) {
+                open = null;
+                batch.full.countDown();
+            }
+        }
+        if (first) {
+            awaitWindow(batch);
+            synchronized (lock) {
+                if (open == batch) {
+                    open = null;
+                }
+            }
+            flush(batch);
+        }
+        return await(key, result);
+    }
+
+    /** Bulk loads run so far. */
+    public long batches() {
+        return batches.sum();
+    }
+
+    /** Distinct keys resolved by the bulk loads. */
+    public long keys() {
+        return keys.sum();
+    }
+
+    private void awaitWindow(Batch<K, V> batch) {
+        try {
+            batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            // Flush right away; the other callers of the batch are waiting on it
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The batch is closed, so its keys are no longer written and can be read without the lock
+    private void flush(Batch<K, V> batch) {
+        batches.increment();
+        keys.add(batch.futures.size());
+        Map<K, V> values;
+        try {
+            values = bulkLoader.apply(batch.futures.keySet());
+        } catch (Throwable ex) {
+            batch.futures.values().forEach(future -> future.completeExceptionally(ex));
+            throw ex;
+        }
+        batch.futures.forEach((key, future) -> future.complete(values.get(key)));
+    }
+
+    private static <K, V> V await(K key, CompletableFuture<V> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException ex) {
+            // Bulk loaders are functions, so the cause is unchecked and can be rethrown as is
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Batched load of " + key + " failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the batched load of " + key, ex);
+        }
+    }
+
+    private static final class Batch<K, V> {
+        final Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        final CountDownLatch full = new CountDownLatch(1);
+    }
+}
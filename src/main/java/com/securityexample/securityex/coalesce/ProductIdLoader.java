@@ -0,0 +1,79 @@
+package com.securityexample.securityex.coalesce;
+
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.repository.ProductRepository;
+import com.securityexample.securityex.routing.DataSourceRouting;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Loads products by id from the primary, for the product cache. With {@code products.batching.window}
+ * set, concurrent single-id loads are gathered for that long, up to {@code products.batching.max-size}
+ * ids, and resolved with one {@code IN} query instead of one query each. A zero window turns batching off.
+ */
+@Component
+public class ProductIdLoader implements MeterBinder {
+
+    // Ids per IN query, as for the other batched id lookups
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final ProductRepository repository;
+    private final MicroBatcher<Long, Product> batcher;
+
+    public ProductIdLoader(ProductRepository repository,
+                           @Value("${products.batching.window:0}") Duration window,
+                           @Value("${products.batching.max-size:100}") int maxBatchSize) {
+        this.repository = repository;
+        // Captures the repository rather than this, which is not fully constructed yet
+        this.batcher = window.isZero() ? null
+                : new MicroBatcher<>(window, maxBatchSize, ids -> findAllById(repository, ids));
+    }
+
+    public Optional<Product> findById(long id) {
+        if (batcher == null) {
+            return DataSourceRouting.onPrimary(() -> repository.findById(id));
+        }
+        return Optional.ofNullable(batcher.load(id));
+    }
+
+    /** The products among {@code ids} that exist, keyed by id. */
+    public Map<Long, Product> findAllById(Collection<Long> ids) {
+        return findAllById(repository, ids);
+    }
+
+    private static Map<Long, Product> findAllById(ProductRepository repository, Collection<Long> ids) {
+        List<Long> all = List.copyOf(ids);
+        Map<Long, Product> products = new HashMap<>(all.size() * 2);
+        for (int from = 0; from < all.size(); from += ID_BATCH_SIZE) {
+            List<Long> batch = new ArrayList<>(all.subList(from, Math.min(from + ID_BATCH_SIZE, all.size())));
+            for (Product product : DataSourceRouting.onPrimary(() -> repository.findAllById(batch))) {
+                products.put(product.getId(), product);
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (batcher == null) {
+            return;
+        }
+        FunctionCounter.builder("products.reads.batched.queries", batcher, MicroBatcher::batches)
+                .description("IN queries run for batched product lookups by id")
+                .register(registry);
+        FunctionCounter.builder("products.reads.batched.ids", batcher, MicroBatcher::keys)
+                .description("Distinct ids resolved by batched product lookups")
+                .register(registry);
+    }
+}
@@ -0,0 +1,79 @@
+package com.securityexample.securityex.coalesce;
+
+import com.securityexample.securityex.routing.DataSourceRouting;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical reads of the service into one query. Callers wait here, before any
+ * transaction is opened, so a burst of requests for the same listing holds one pooled connection
+ * instead of queueing for all of them. The first caller runs the query in its own read-only
+ * transaction and the others share its result, which they must therefore not modify.
+ * <p>
+ * A read only joins another that was started against the same version tag and the same routing,
+ * so a caller never gets a result loaded before a write it has already seen, nor a replica read
+ * while it is pinned to the primary.
+ */
+@Component
+public class ReadCoalescer implements MeterBinder {
+
+    private final SingleFlight<Key, Object> flights;
+    private final TransactionOperations readOnlyTransactions;
+
+    @Autowired
+    public ReadCoalescer(PlatformTransactionManager transactionManager,
+                         @Value("${products.coalescing.wait-timeout:2s}") Duration waitTimeout) {
+        this(readOnly(transactionManager), waitTimeout);
+    }
+
+    public ReadCoalescer(TransactionOperations readOnlyTransactions, Duration waitTimeout) {
+        this.readOnlyTransactions = readOnlyTransactions;
+        this.flights = new SingleFlight<>(waitTimeout);
+    }
+
+    /**
+     * Result of {@code loader} for the read named {@code read} of {@code key}, shared with concurrent
+     * callers passing the same read, key and {@code version}.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String read, Object key, String version, Supplier<V> loader) {
+        Key flight = new Key(read, key, version, DataSourceRouting.isPrimaryForced());
+        return (V) flights.execute(flight, () -> readOnlyTransactions.execute(status -> loader.get()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("products.reads.coalesced", flights, SingleFlight::collapsed)
+                .description("Reads answered by an identical read already in flight")
+                .register(registry);
+        FunctionCounter.builder("products.reads.coalescing.loads", flights, SingleFlight::loads)
+                .description("Queries run by coalesced reads")
+                .register(registry);
+        FunctionCounter.builder("products.reads.coalescing.timeouts", flights, SingleFlight::timeouts)
+                .description("Reads that stopped waiting for an identical read and queried themselves")
+                .register(registry);
+        Gauge.builder("products.reads.coalescing.inflight", flights, SingleFlight::inFlight)
+                .description("Distinct reads currently being loaded")
+                .register(registry);
+    }
+
+    private static TransactionOperations readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private record Key(String read, Object value, String version, boolean primary) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.securityexample.securityex.coalesce;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one load per key at a time. A caller asking for a key whose load is already in flight
+ * waits for that load instead of starting its own, and gets the same value or the same exception. A
+ * load that finishes is forgotten at once: later callers start a new one, so nothing is cached here.
+ * A caller that has waited {@code waitTimeout} stops waiting and loads for itself, so one stuck load
+ * does not hold up everyone behind it.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutNanos;
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(Duration waitTimeout) {
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+    }
+
+    /** Returns the value of {@code loader}, run by this caller or by the one already loading {@code key}. */
+    public V execute(K key, Supplier<? extends V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return await(key, leader, loader);
+        }
+        loads.increment();
+        V value;
+        try {
+            value = loader.get();
+        } catch (Throwable ex) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+        // Removed before completing, so a caller arriving now starts a fresh load instead of reusing this one
+        inFlight.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    private V await(K key, CompletableFuture<V> leader, Supplier<? extends V> loader) {
+        try {
+            V value = leader.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+            collapsed.increment();
+            return value;
+        } catch (ExecutionException ex) {
+            collapsed.increment();
+            // Loaders are suppliers, so the cause is unchecked and can be rethrown as is
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Load of " + key + " failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            timeouts.increment();
+            loads.increment();
+            return loader.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the load of " + key, ex);
+        }
+    }
+
+    /** Loads run, by the first caller of a key or by a caller that gave up waiting. */
+    public long loads() {
+        return loads.sum();
+    }
+
+    /** Callers answered by another caller's load, with its value or its exception. */
+    public long collapsed() {
+        return collapsed.sum();
+    }
+
+    /** Callers that stopped waiting for another caller's load and ran their own. */
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,42 @@
+package com.securityexample.securityex.controller;
+
+import com.securityexample.securityex.changes.ChangePage;
+import com.securityexample.securityex.changes.ProductChangeFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/v1/products/changes")
+public class ProductChangeController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangeController.class);
+
+    private final ProductChangeFeed changeFeed;
+
+    public ProductChangeController(ProductChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @GetMapping
+    public ResponseEntity<ChangePage> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                 @RequestParam(defaultValue = "100") int limit) {
+        logger.debug("Received request for up to {} product changes after seq {}", limit, since);
+        return ResponseEntity.ok(changeFeed.changes(since, limit));
+    }
+
+    /** Server-Sent Events; {@code Last-Event-ID}, sent by reconnecting clients, wins over {@code since}. */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(required = false) Long since) {
+        logger.debug("Received request to stream product changes after seq {}", lastEventId != null ? lastEventId : since);
+        return changeFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
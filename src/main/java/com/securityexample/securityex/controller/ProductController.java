@@ -1,13 +1,43 @@
 package com.securityexample.securityex.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.securityexample.securityex.bulk.BulkResult;
+import com.securityexample.securityex.bulk.MultiGetResult;
+import com.securityexample.securityex.cache.CatalogVersions;
 import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.filter.ProductFilter;
+import com.securityexample.securityex.filter.ProductSort;
+import com.securityexample.securityex.index.CategoryStats;
+import com.securityexample.securityex.json.ProductJsonCache;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.pagination.SearchPage;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
+import com.securityexample.securityex.routing.DataSourceRouting;
 import com.securityexample.securityex.service.ProductServiceImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/products")
@@ -15,81 +45,481 @@ public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    // Clients may keep polled responses but must revalidate them with If-None-Match before reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+    private static final String GZIP_TAG_SUFFIX = ".gz";
+    // Compact encodings for service-to-service callers, negotiated through Accept
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final List<MediaType> BINARY_TYPES = List.of(MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
     private final ProductServiceImpl service;
+    private final CatalogVersions catalogVersions;
+    private final ProductJsonCache jsonCache;
+    private final ObjectMapper objectMapper;
+    // Leaves flushing to the generator's buffer instead of pushing every exported row to the socket
+    private final ObjectWriter exportWriter;
 
-    public ProductController(ProductServiceImpl service) {
+    public ProductController(ProductServiceImpl service, CatalogVersions catalogVersions, ProductJsonCache jsonCache,
+                             ObjectMapper objectMapper) {
         this.service = service;
+        this.catalogVersions = catalogVersions;
+        this.jsonCache = jsonCache;
+        this.objectMapper = objectMapper;
+        this.exportWriter = objectMapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        logger.info("Received request to fetch product with id {}", id);
+    public ResponseEntity<Object> getProductById(@PathVariable Long id, WebRequest request) {
+        logger.debug("Received request to fetch product with id {}", id);
+        MediaType binaryType = preferredBinaryType(request);
+        boolean gzip = binaryType == null && acceptsGzip(request);
+        // Usually a cache hit; the persisted version tags the product the same way on every instance
         Product product = service.getProductById(id);
-        logger.info("Successfully fetched product with id {}", id);
-        return ResponseEntity.ok(product);
+        // Gzipped, plain and binary responses are different representations, so their tags must differ too
+        String etag = CatalogVersions.productTag(product.getVersion()) + formatTag(binaryType) + (gzip ? GZIP_TAG_SUFFIX : "");
+        if (request.checkNotModified(etag)) {
+            logger.debug("Not modified since {}", etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        logger.debug("Successfully fetched product with id {}", id);
+        if (binaryType != null) {
+            return response.contentType(binaryType).body(product);
+        }
+        byte[] compressed = gzip ? jsonCache.gzip(product) : null;
+        if (compressed != null) {
+            return response.contentType(MediaType.APPLICATION_JSON).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(compressed);
+        }
+        return response.contentType(MediaType.APPLICATION_JSON).body(jsonCache.json(product));
+    }
+
+    // The listings at the collection root are told apart by their parameters alone, so each one excludes the
+    // others'; a request that mixes ids with limit or fields matches none and is rejected with 400
+    @GetMapping(params = {"ids", "!limit", "!fields"})
+    public ResponseEntity<MultiGetResult> getProductsByIds(@RequestParam List<Long> ids) {
+        logger.debug("Received request to fetch {} products by id", ids.size());
+        MultiGetResult result = service.getProductsByIds(ids);
+        logger.debug("Successfully fetched {} products by id, {} missing", result.products().size(), result.missing().size());
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/name/{name}")
-    public ResponseEntity<List<Product>> getProductByName(@PathVariable String name) {
-        logger.info("Received request to fetch products with name {}", name);
+    public ResponseEntity<Object> getProductByName(@PathVariable String name, WebRequest request) {
+        logger.debug("Received request to fetch products with name {}", name);
         List<Product> products = service.getProductByName(name);
-        logger.info("Successfully fetched products with name {}", name);
-        return ResponseEntity.ok(products);
+        logger.debug("Successfully fetched products with name {}", name);
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(productList(products, request));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<SearchPage<Product>> searchProducts(@RequestParam String q,
+                                                              @RequestParam(defaultValue = "0") int page,
+                                                              @RequestParam(defaultValue = "20") int size) {
+        logger.debug("Received request to search products for '{}'", q);
+        SearchPage<Product> results = service.searchProducts(q, page, size);
+        logger.debug("Successfully searched products for '{}' with {} matches", q, results.total());
+        return ResponseEntity.ok(results);
+    }
+
+    @GetMapping("/search/suggest")
+    public ResponseEntity<List<String>> suggestSearchTerms(@RequestParam String prefix,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("Received request to suggest search terms for prefix '{}'", prefix);
+        List<String> terms = service.suggestSearchTerms(prefix, limit);
+        logger.debug("Successfully suggested {} search terms for prefix '{}'", terms.size(), prefix);
+        return ResponseEntity.ok(terms);
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductByCategory(@PathVariable String category) {
-        logger.info("Received request to fetch products with category {}", category);
-        List<Product> products = service.getProductsByCategory(category);
-        logger.info("Successfully fetched products with category {}", category);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<Object> getProductByCategory(@PathVariable String category, WebRequest request) {
+        logger.debug("Received request to fetch products with category {}", category);
+        return conditionalGet(request, catalogVersions.categoryTag(category), () -> {
+            List<Product> products = service.getProductsByCategory(category);
+            logger.debug("Successfully fetched products with category {}", category);
+            return productList(products, request);
+        });
+    }
+
+    @GetMapping("/category")
+    public ResponseEntity<Object> getProductsInAnyCategory(@RequestParam List<String> any, WebRequest request) {
+        logger.debug("Received request to fetch products in any of the categories {}", any);
+        List<Product> products = service.getProductsInAnyCategory(any);
+        logger.debug("Successfully fetched products in any of the categories {}", any);
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(productList(products, request));
+    }
+
+    @GetMapping("/category/{category}/ids")
+    public ResponseEntity<long[]> getProductIdsByCategory(@PathVariable String category) {
+        logger.debug("Received request to fetch product ids with category {}", category);
+        long[] ids = service.getProductIdsByCategory(category);
+        logger.debug("Successfully fetched {} product ids with category {}", ids.length, category);
+        return ResponseEntity.ok(ids);
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<Map<String, Long>> getCategoryCounts() {
+        logger.debug("Received request to fetch product counts per category");
+        Map<String, Long> counts = service.getCategoryCounts();
+        logger.debug("Successfully fetched product counts for {} categories", counts.size());
+        return ResponseEntity.ok(counts);
+    }
+
+    /**
+     * Price statistics per category. {@code bounds} picks histogram bucket bounds among the configured ones;
+     * the histogram uses all of them when it is absent.
+     */
+    @GetMapping("/aggregates")
+    public ResponseEntity<Map<String, CategoryStats>> getCategoryStats(@RequestParam(required = false) double[] bounds,
+                                                                       WebRequest request) {
+        logger.debug("Received request to fetch price statistics per category");
+        String boundsTag = bounds == null ? ""
+                : Arrays.stream(bounds).mapToObj(Double::toString).collect(Collectors.joining("_", ".b", ""));
+        return conditionalGet(request, catalogVersions.catalogTag() + boundsTag, () -> {
+            Map<String, CategoryStats> stats = service.getCategoryStats(bounds);
+            logger.debug("Successfully fetched price statistics for {} categories", stats.size());
+            return stats;
+        });
     }
 
     @GetMapping("/price/asc")
-    public ResponseEntity<List<Product>> listAllProductsByPricesAsc() {
-        logger.info("Received request to fetch products with price ascending");
+    public ResponseEntity<Object> listAllProductsByPricesAsc(WebRequest request) {
+        logger.debug("Received request to fetch products with price ascending");
         List<Product> products = service.findAllProductsByPriceAsc();
-        logger.info("Successfully fetched products with price ascending");
-        return ResponseEntity.ok(products);
+        logger.debug("Successfully fetched products with price ascending");
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(productList(products, request));
     }
 
     @GetMapping("/price/desc")
-    public ResponseEntity<List<Product>> listAllProductsByPricesDesc() {
-        logger.info("Received request to fetch products with price descending");
+    public ResponseEntity<Object> listAllProductsByPricesDesc(WebRequest request) {
+        logger.debug("Received request to fetch products with price descending");
         List<Product> products = service.findAllProductsByPriceDesc();
-        logger.info("Successfully fetched products with price descending");
-        return ResponseEntity.ok(products);
+        logger.debug("Successfully fetched products with price descending");
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(productList(products, request));
+    }
+
+    @GetMapping("/price/range")
+    public ResponseEntity<Object> listProductsByPriceRange(@RequestParam double min, @RequestParam double max,
+                                                           @RequestParam(defaultValue = "100") int limit, WebRequest request) {
+        logger.debug("Received request to fetch products with price between {} and {}", min, max);
+        List<Product> products = service.getProductsByPriceRange(min, max, limit);
+        logger.debug("Successfully fetched products with price between {} and {}", min, max);
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(productList(products, request));
+    }
+
+    @GetMapping(params = "!ids")
+    public ResponseEntity<Object> getAllProducts(WebRequest request) {
+        logger.debug("Received request to fetch all products");
+        return conditionalGet(request, catalogVersions.catalogTag(), () -> {
+            List<Product> products = service.getAllProducts();
+            logger.debug("Successfully fetched all products");
+            return productList(products, request);
+        });
+    }
+
+    @GetMapping(params = {"limit", "!ids", "!fields"})
+    public ResponseEntity<CursorPage<Product>> getProductsPage(@RequestParam int limit,
+                                                               @RequestParam(required = false) String cursor) {
+        logger.debug("Received request to fetch products page with limit {}", limit);
+        CursorPage<Product> page = service.getProductsPage(cursor, limit);
+        logger.debug("Successfully fetched products page with {} items", page.items().size());
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/price/asc", params = "limit")
+    public ResponseEntity<CursorPage<Product>> listProductsPageByPricesAsc(@RequestParam int limit,
+                                                                           @RequestParam(required = false) String cursor) {
+        logger.debug("Received request to fetch products page with price ascending and limit {}", limit);
+        CursorPage<Product> page = service.getProductsPageByPriceAsc(cursor, limit);
+        logger.debug("Successfully fetched products page with price ascending with {} items", page.items().size());
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/price/desc", params = "limit")
+    public ResponseEntity<CursorPage<Product>> listProductsPageByPricesDesc(@RequestParam int limit,
+                                                                            @RequestParam(required = false) String cursor) {
+        logger.debug("Received request to fetch products page with price descending and limit {}", limit);
+        CursorPage<Product> page = service.getProductsPageByPriceDesc(cursor, limit);
+        logger.debug("Successfully fetched products page with price descending with {} items", page.items().size());
+        return ResponseEntity.ok(page);
+    }
+
+    // Any combination of category, name and price range in one query, paged by cursor in the chosen order
+
+    @GetMapping("/filter")
+    public ResponseEntity<CursorPage<Product>> filterProducts(@RequestParam(required = false) String category,
+                                                              @RequestParam(required = false) String name,
+                                                              @RequestParam(required = false) Double minPrice,
+                                                              @RequestParam(required = false) Double maxPrice,
+                                                              @RequestParam(defaultValue = "id") String sort,
+                                                              @RequestParam(defaultValue = "100") int limit,
+                                                              @RequestParam(required = false) String cursor) {
+        ProductFilter filter = new ProductFilter(category, name, minPrice, maxPrice);
+        logger.debug("Received request to filter products by {} ordered by {} with limit {}", filter, sort, limit);
+        CursorPage<Product> page = service.filterProducts(filter, ProductSort.of(sort), cursor, limit);
+        logger.debug("Successfully filtered products page with {} items", page.items().size());
+        return ResponseEntity.ok(page);
+    }
+
+    // ?fields=id,name,price narrows a listing to those columns; only they are read from the database
+
+    @GetMapping(params = {"fields", "!ids", "!limit"})
+    public ResponseEntity<List<Map<String, Object>>> getAllProductFields(@RequestParam List<String> fields, WebRequest request) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of all products", selected);
+        return conditionalGet(request, catalogVersions.catalogTag() + fieldsTag(selected),
+                () -> service.getAllProducts(selected));
+    }
+
+    @GetMapping(params = {"limit", "fields", "!ids"})
+    public ResponseEntity<CursorPage<Map<String, Object>>> getProductFieldsPage(@RequestParam int limit,
+                                                                              @RequestParam(required = false) String cursor,
+                                                                              @RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products page with limit {}", selected, limit);
+        return ResponseEntity.ok(service.getProductsPage(cursor, limit, selected));
+    }
+
+    @GetMapping(value = "/filter", params = "fields")
+    public ResponseEntity<CursorPage<Map<String, Object>>> filterProductFields(@RequestParam(required = false) String category,
+                                                                             @RequestParam(required = false) String name,
+                                                                             @RequestParam(required = false) Double minPrice,
+                                                                             @RequestParam(required = false) Double maxPrice,
+                                                                             @RequestParam(defaultValue = "id") String sort,
+                                                                             @RequestParam(defaultValue = "100") int limit,
+                                                                             @RequestParam(required = false) String cursor,
+                                                                             @RequestParam List<String> fields) {
+        ProductFilter filter = new ProductFilter(category, name, minPrice, maxPrice);
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to filter fields {} of products by {} ordered by {} with limit {}", selected, filter, sort, limit);
+        return ResponseEntity.ok(service.filterProducts(filter, ProductSort.of(sort), cursor, limit, selected));
+    }
+
+    @GetMapping(value = "/name/{name}", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getProductFieldsByName(@PathVariable String name,
+                                                                          @RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products with name {}", selected, name);
+        return ResponseEntity.ok(service.getProductByName(name, selected));
     }
 
-    @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        logger.info("Received request to fetch all products");
-        List<Product> products = service.getAllProducts();
-        logger.info("Successfully fetched all products");
-        return ResponseEntity.ok(products);
+    @GetMapping(value = "/category/{category}", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getProductFieldsByCategory(@PathVariable String category,
+                                                                              @RequestParam List<String> fields,
+                                                                              WebRequest request) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products with category {}", selected, category);
+        return conditionalGet(request, catalogVersions.categoryTag(category) + fieldsTag(selected),
+                () -> service.getProductsByCategory(category, selected));
+    }
+
+    @GetMapping(value = "/category", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> getProductFieldsInAnyCategory(@RequestParam List<String> any,
+                                                                                 @RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products in any of the categories {}", selected, any);
+        return ResponseEntity.ok(service.getProductsInAnyCategory(any, selected));
+    }
+
+    @GetMapping(value = "/price/asc", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listProductFieldsByPricesAsc(@RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products with price ascending", selected);
+        return ResponseEntity.ok(service.findAllProductsByPriceAsc(selected));
+    }
+
+    @GetMapping(value = "/price/desc", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listProductFieldsByPricesDesc(@RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products with price descending", selected);
+        return ResponseEntity.ok(service.findAllProductsByPriceDesc(selected));
+    }
+
+    @GetMapping(value = "/price/range", params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listProductFieldsByPriceRange(@RequestParam double min,
+                                                                                 @RequestParam double max,
+                                                                                 @RequestParam(defaultValue = "100") int limit,
+                                                                                 @RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products with price between {} and {}", selected, min, max);
+        return ResponseEntity.ok(service.getProductsByPriceRange(min, max, limit, selected));
+    }
+
+    @GetMapping(value = "/price/asc", params = {"limit", "fields"})
+    public ResponseEntity<CursorPage<Map<String, Object>>> listProductFieldsPageByPricesAsc(@RequestParam int limit,
+                                                                                          @RequestParam(required = false) String cursor,
+                                                                                          @RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products page with price ascending and limit {}", selected, limit);
+        return ResponseEntity.ok(service.getProductsPageByPriceAsc(cursor, limit, selected));
+    }
+
+    @GetMapping(value = "/price/desc", params = {"limit", "fields"})
+    public ResponseEntity<CursorPage<Map<String, Object>>> listProductFieldsPageByPricesDesc(@RequestParam int limit,
+                                                                                           @RequestParam(required = false) String cursor,
+                                                                                           @RequestParam List<String> fields) {
+        Set<ProductField> selected = ProductField.parse(fields);
+        logger.debug("Received request to fetch fields {} of products page with price descending and limit {}", selected, limit);
+        return ResponseEntity.ok(service.getProductsPageByPriceDesc(cursor, limit, selected));
+    }
+
+    // A projection is a different representation of the same listing, so it needs its own tag
+    private static String fieldsTag(Set<ProductField> fields) {
+        return ".f" + ProductField.mask(fields);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        logger.debug("Received request to export all products");
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null)) {
+                long exported = service.exportProducts(product -> writeLine(generator, product));
+                logger.debug("Successfully exported {} products", exported);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeLine(JsonGenerator generator, Product product) {
+        try {
+            exportWriter.writeValue(generator, product);
+            generator.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
     @PostMapping
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
-        logger.info("Received request to save product with name {}", product.getName());
+        logger.debug("Received request to save product with name {}", product.getName());
         Product createdProduct = service.saveProduct(product);
-        logger.info("Successfully added product with id {}", createdProduct.getId());
+        logger.debug("Successfully added product with id {}", createdProduct.getId());
         return ResponseEntity.ok(createdProduct);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
-        logger.info("Received request to delete product with id {}", id);
+        logger.debug("Received request to delete product with id {}", id);
         service.deleteProduct(id);
-        logger.info("Successfully deleted product with id {}", id);
+        logger.debug("Successfully deleted product with id {}", id);
         return ResponseEntity.noContent().build();
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
-        logger.info("Received request to update product with id {}", id);
+        logger.debug("Received request to update product with id {}", id);
         Product updatedProduct = service.updateProduct(id, product);
-        logger.info("Successfully updated product with id {}", id);
+        logger.debug("Successfully updated product with id {}", id);
         return ResponseEntity.ok(updatedProduct);
     }
-}
\ No newline at end of file
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchProduct(@PathVariable Long id, @RequestBody ProductPatch patch) {
+        logger.debug("Received request to patch product with id {}", id);
+        long version = service.patchProduct(id, patch);
+        logger.debug("Successfully patched product with id {} to version {}", id, version);
+        // The tag the JSON of GET /{id} now carries, so the same resource is never tagged in two ways
+        return ResponseEntity.noContent().eTag(CatalogVersions.productTag(version)).build();
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkResult> createProducts(@RequestBody List<Product> products) {
+        logger.debug("Received request to create {} products", products.size());
+        BulkResult result = service.createProducts(products);
+        logger.debug("Bulk create finished: {} succeeded, {} failed", result.succeeded(), result.failed());
+        return ResponseEntity.ok(result);
+    }
+
+    @PutMapping("/bulk")
+    public ResponseEntity<BulkResult> updateProducts(@RequestBody List<Product> products) {
+        logger.debug("Received request to update {} products", products.size());
+        BulkResult result = service.updateProducts(products);
+        logger.debug("Bulk update finished: {} succeeded, {} failed", result.succeeded(), result.failed());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkResult> deleteProducts(@RequestBody List<Long> ids) {
+        logger.debug("Received request to delete {} products", ids.size());
+        BulkResult result = service.deleteProducts(ids);
+        logger.debug("Bulk delete finished: {} succeeded, {} failed", result.succeeded(), result.failed());
+        return ResponseEntity.ok(result);
+    }
+
+    // JSON is built from the cached fragments; binary encodings go through their Jackson converters
+    private Object productList(List<Product> products, WebRequest request) {
+        return preferredBinaryType(request) == null ? jsonCache.array(products) : products;
+    }
+
+    /**
+     * The binary encoding Accept ranks above JSON, or null to answer with JSON. Wildcards count as
+     * JSON, so JSON stays the default; of equal quality values the first listed wins.
+     */
+    private static MediaType preferredBinaryType(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return null;
+        }
+        MediaType preferred = null;
+        double bestQuality = 0;
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                MediaType binaryType = BINARY_TYPES.stream().filter(type::equalsTypeAndSubtype).findFirst().orElse(null);
+                if ((binaryType != null || type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                        && type.getQualityValue() > bestQuality) {
+                    bestQuality = type.getQualityValue();
+                    preferred = binaryType;
+                }
+            }
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+        return preferred;
+    }
+
+    private static String formatTag(MediaType binaryType) {
+        return binaryType == null ? "" : "." + binaryType.getSubtype();
+    }
+
+    // True if Accept-Encoding lists gzip without q=0; "*" is not taken as a request for gzip
+    private static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].strip().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].strip();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException ex) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Answers 304 when the client already holds the tag of the listing in the negotiated encoding, without
+     * calling {@code body}. The tag is taken before the read, so it can only be older than the body it is sent with.
+     * The read runs on the primary: a lagging replica could return an older listing under the newer tag.
+     */
+    private static <T> ResponseEntity<T> conditionalGet(WebRequest request, String listingTag, Supplier<T> body) {
+        // The same listing in another encoding is another representation with its own tag
+        String etag = listingTag + formatTag(preferredBinaryType(request));
+        if (request.checkNotModified(etag)) {
+            logger.debug("Not modified since {}", etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(DataSourceRouting.onPrimary(body));
+    }
+}
@@ -0,0 +1,30 @@
+package com.securityexample.securityex.controller;
+
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/products/indexes")
+public class ProductIndexController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexController.class);
+
+    private final ProductServiceImpl service;
+
+    public ProductIndexController(ProductServiceImpl service) {
+        this.service = service;
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuildIndexes() {
+        logger.info("Received request to rebuild product indexes");
+        service.rebuildIndexes();
+        logger.info("Successfully rebuilt product indexes");
+        return ResponseEntity.noContent().build();
+    }
+}
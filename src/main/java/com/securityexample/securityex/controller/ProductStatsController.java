@@ -0,0 +1,35 @@
+package com.securityexample.securityex.controller;
+
+import com.securityexample.securityex.cache.ProductCacheStats;
+import com.securityexample.securityex.limit.ConcurrencyLimitFilter;
+import com.securityexample.securityex.limit.ConcurrencyLimitStats;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/products/stats")
+public class ProductStatsController {
+
+    private final ProductServiceImpl service;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    public ProductStatsController(ProductServiceImpl service, ConcurrencyLimitFilter concurrencyLimitFilter) {
+        this.service = service;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<ProductCacheStats> getCacheStats() {
+        return ResponseEntity.ok(service.getCacheStats());
+    }
+
+    @GetMapping("/limits")
+    public ResponseEntity<Map<String, ConcurrencyLimitStats>> getConcurrencyLimits() {
+        return ResponseEntity.ok(concurrencyLimitFilter.stats());
+    }
+}
@@ -9,17 +9,31 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
-@Table(name = "products")
+// Secondary indexes for the filtered listings: category equality followed by a price range or order,
+// name lookups, and price orders or ranges over the whole catalog. The id closes each composite so the
+// keyset seeks of cursor pages stay within one index range.
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_price_id", columnList = "category, price, id"),
+        @Index(name = "idx_products_name", columnList = "name"),
+        @Index(name = "idx_products_price_id", columnList = "price, id")
+})
 public class Product {
 
+    // IDENTITY would force Hibernate to insert rows one at a time to learn each id. A pooled
+    // sequence (emulated with a table on MySQL) hands out blocks of ids, so inserts can be batched.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id")
+    @SequenceGenerator(name = "product_id", sequenceName = "products_seq", allocationSize = 50)
     private long id;
     private String name;
     private String category;
     private double price;
     private String description;
 
+    // Bumped on every write; stale writers are rejected instead of silently overwriting each other
+    @Version
+    private long version;
+
     public Product(String name, String category, double price, String description) {
         this.name = name;
         this.category = category;
@@ -0,0 +1,50 @@
+package com.securityexample.securityex.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One row of the product change feed, written in the same transaction as the change it records.
+ * {@code payload} holds the fields that were written, as JSON: the whole product for creates and
+ * updates, only the patched fields (with id and version) for patches, nothing for deletes. Applying
+ * the payloads in {@code seq} order on top of a copy of the catalog brings it up to date.
+ */
+@NoArgsConstructor
+@Getter
+@Entity
+@Table(name = "product_changes", indexes = @Index(name = "idx_product_changes_changed_at", columnList = "changed_at"))
+public class ProductChange {
+
+    // IDENTITY rather than a pooled sequence: blocks handed out to different instances would put
+    // changes that commit later before ones already read, and consumers would skip them
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long seq;
+    private long productId;
+    @Enumerated(EnumType.STRING)
+    private ProductChangeType type;
+    // Version the product has after the change; null for deletes
+    private Long version;
+    private Instant changedAt;
+    @Lob
+    @JsonRawValue
+    private String payload;
+    // Instance that wrote the change, so it can tell its own changes from those of other instances
+    @JsonIgnore
+    private String origin;
+
+    public ProductChange(long productId, ProductChangeType type, Long version, Instant changedAt, String payload,
+                         String origin) {
+        this.productId = productId;
+        this.type = type;
+        this.version = version;
+        this.changedAt = changedAt;
+        this.payload = payload;
+        this.origin = origin;
+    }
+}
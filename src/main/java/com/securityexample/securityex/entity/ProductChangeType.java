@@ -0,0 +1,8 @@
+package com.securityexample.securityex.entity;
+
+/** What a {@link ProductChange} did to the product. */
+public enum ProductChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
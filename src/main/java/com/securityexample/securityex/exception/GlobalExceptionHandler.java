@@ -1,9 +1,14 @@
 package com.securityexample.securityex.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -13,12 +18,33 @@ public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final Counter productNotFound;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.productNotFound = Counter.builder("products.not.found")
+                .description("Requests answered with 404 because a product does not exist")
+                .register(meterRegistry);
+    }
+
     @ExceptionHandler(value = ProductNotFoundException.class)
     public ResponseEntity<String> handleProductNotFoundException(ProductNotFoundException ex) {
+        productNotFound.increment();
         logger.error("Custom error: {}", ex.getMessage());
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler({ProductVersionConflictException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<String> handleVersionConflict(RuntimeException ex) {
+        logger.error("Version conflict: {}", ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(TransientDataAccessResourceException.class)
+    public ResponseEntity<String> handleDatabaseBusy(TransientDataAccessResourceException ex) {
+        logger.error("Database busy: {}", ex.getMessage());
+        return new ResponseEntity<>("The service is busy. Please try again later.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<String> handleMethodArgumentTypeMismatch(MethodArgumentTypeMismatchException ex) {
         String errorMessage = String.format("Invalid value '%s' for parameter '%s'", ex.getValue(), ex.getName());
@@ -26,6 +52,19 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
     }
 
+    // Missing parameters, or a combination that no handler mapping accepts (e.g. ids together with limit)
+    @ExceptionHandler(ServletRequestBindingException.class)
+    public ResponseEntity<String> handleRequestBinding(ServletRequestBindingException ex) {
+        logger.error("Invalid request parameters: {}", ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        logger.error("Invalid request: {}", ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleGenericException(Exception ex) {
         logger.error("An error occurred: {}", ex.getMessage());
@@ -0,0 +1,7 @@
+package com.securityexample.securityex.exception;
+
+public class ProductVersionConflictException extends RuntimeException {
+    public ProductVersionConflictException(String message) {
+        super(message);
+    }
+}
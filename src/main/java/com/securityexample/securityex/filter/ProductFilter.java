@@ -0,0 +1,39 @@
+package com.securityexample.securityex.filter;
+
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.repository.ProductSpecifications;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria of a combined listing; null components do not filter. They are and-ed into a single
+ * {@code WHERE} clause whose equality columns come first, so a category or name narrows the rows through
+ * the composite indexes declared on {@link Product} before the price range is applied.
+ */
+public record ProductFilter(String category, String name, Double minPrice, Double maxPrice) {
+
+    public ProductFilter {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("Invalid price range: min " + minPrice + " is greater than max " + maxPrice);
+        }
+    }
+
+    public Specification<Product> specification() {
+        List<Specification<Product>> predicates = new ArrayList<>(4);
+        if (category != null) {
+            predicates.add(ProductSpecifications.categoryEquals(category));
+        }
+        if (name != null) {
+            predicates.add(ProductSpecifications.nameEquals(name));
+        }
+        if (minPrice != null) {
+            predicates.add(ProductSpecifications.priceAtLeast(minPrice));
+        }
+        if (maxPrice != null) {
+            predicates.add(ProductSpecifications.priceAtMost(maxPrice));
+        }
+        return Specification.allOf(predicates);
+    }
+}
@@ -0,0 +1,60 @@
+package com.securityexample.securityex.filter;
+
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.pagination.ProductCursor;
+import com.securityexample.securityex.repository.ProductSpecifications;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Orders of a combined listing, each with the keyset predicate that seeks past a cursor. The id breaks
+ * ties so every order is total and pages neither repeat nor skip rows.
+ */
+public enum ProductSort {
+    ID(Sort.by("id")) {
+        @Override
+        public Specification<Product> after(ProductCursor cursor) {
+            return ProductSpecifications.idGreaterThan(cursor.id());
+        }
+    },
+    PRICE_ASC(Sort.by("price", "id")) {
+        @Override
+        public Specification<Product> after(ProductCursor cursor) {
+            return ProductSpecifications.priceAscAfter(cursor.price(), cursor.id());
+        }
+    },
+    PRICE_DESC(Sort.by(Sort.Direction.DESC, "price", "id")) {
+        @Override
+        public Specification<Product> after(ProductCursor cursor) {
+            return ProductSpecifications.priceDescAfter(cursor.price(), cursor.id());
+        }
+    };
+
+    private final Sort sort;
+
+    ProductSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort sort() {
+        return sort;
+    }
+
+    /** Rows that come after {@code cursor} in this order. */
+    public abstract Specification<Product> after(ProductCursor cursor);
+
+    /** Parses {@code id}, {@code price_asc} or {@code price_desc}. */
+    public static ProductSort of(String name) {
+        for (ProductSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(name)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + name + " (expected one of "
+                + Arrays.stream(values()).map(sort -> sort.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")) + ")");
+    }
+}
@@ -0,0 +1,189 @@
+package com.securityexample.securityex.index;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index from category to the ids of its products, held as compressed Roaring bitmaps.
+ * Membership, per-category counts and unions across categories are answered without touching the
+ * database; callers load full rows only for the ids they actually need.
+ * <p>
+ * Maintained incrementally by the service write paths and rebuilt from the database in the same
+ * way as {@link PriceIndex}.
+ */
+@Component
+public class CategoryIndex {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Roaring64Bitmap> idsByCategory = new HashMap<>();
+
+    // Writes that arrive while a rebuild is reading the database; replayed onto the rebuilt bitmaps
+    private List<Runnable> pendingWrites;
+    private volatile boolean ready;
+
+    /** Receives the rows of a rebuild. */
+    public interface Loader {
+        void add(long id, String category);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Moves {@code id} into {@code category} and returns the category it was in before, or null. */
+    public String put(long id, String category) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> move(idsByCategory, id, category));
+            }
+            return move(idsByCategory, id, category);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes {@code id} and returns the category it was in, or null. */
+    public String remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> move(idsByCategory, id, null));
+            }
+            return move(idsByCategory, id, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The category {@code id} is indexed under, or null if it is not indexed. */
+    public String categoryOf(long id) {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Roaring64Bitmap> entry : idsByCategory.entrySet()) {
+                if (entry.getValue().contains(id)) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the rows handed to the loader by {@code source}.
+     * Reads keep being served from the current contents while the source runs.
+     */
+    public synchronized void rebuild(Consumer<Loader> source) {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<String, Roaring64Bitmap> rebuilt = new HashMap<>();
+        try {
+            source.accept((id, category) -> {
+                if (category != null) {
+                    rebuilt.computeIfAbsent(category, key -> new Roaring64Bitmap()).addLong(id);
+                }
+            });
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+        rebuilt.values().forEach(Roaring64Bitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            idsByCategory = rebuilt;
+            pendingWrites.forEach(Runnable::run);
+            pendingWrites = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Ids of the products in {@code category}, ascending. */
+    public long[] ids(String category) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap ids = idsByCategory.get(category);
+            return ids == null ? NO_IDS : ids.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Ids of the products that belong to any of {@code categories}, ascending. */
+    public long[] idsInAny(Collection<String> categories) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap union = new Roaring64Bitmap();
+            for (String category : categories) {
+                Roaring64Bitmap ids = idsByCategory.get(category);
+                if (ids != null) {
+                    union.or(ids);
+                }
+            }
+            return union.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of products per category, ordered by category name. */
+    public Map<String, Long> counts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new TreeMap<>();
+            idsByCategory.forEach((category, ids) -> counts.put(category, ids.getLongCardinality()));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The number of categories is small, so clearing the id from every bitmap is cheaper than
+    // keeping a reverse id -> category map for the whole catalog
+    private static String move(Map<String, Roaring64Bitmap> idsByCategory, long id, String category) {
+        String previous = null;
+        Iterator<Map.Entry<String, Roaring64Bitmap>> entries = idsByCategory.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Roaring64Bitmap> entry = entries.next();
+            Roaring64Bitmap ids = entry.getValue();
+            if (ids.contains(id)) {
+                previous = entry.getKey();
+                ids.removeLong(id);
+                if (ids.isEmpty()) {
+                    entries.remove();
+                }
+            }
+        }
+        if (category != null) {
+            idsByCategory.computeIfAbsent(category, key -> new Roaring64Bitmap()).addLong(id);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,11 @@
+package com.securityexample.securityex.index;
+
+import java.util.List;
+
+/**
+ * Price statistics of the products in one category. {@code histogram} counts the products per price
+ * bucket, cheapest bucket first.
+ */
+public record CategoryStats(long count, double sum, double min, double max, double average,
+                            List<PriceBucket> histogram) {
+}
@@ -0,0 +1,288 @@
+package com.securityexample.securityex.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Running price statistics per category: count, sum, minimum, maximum and a histogram over the
+ * bounds in {@code products.aggregates.histogram-bounds}. Every write moves one product between
+ * aggregates, so reading the statistics costs the same whatever the size of the catalog.
+ * <p>
+ * Minimum and maximum survive deletes because each category keeps its prices as a sorted multiset.
+ * The sum is a running floating-point total. The service compares it with a {@code GROUP BY} query
+ * from time to time and rebuilds the index when they differ. Maintained and rebuilt the same way as
+ * {@link PriceIndex}.
+ */
+@Component
+public class CategoryStatsIndex {
+
+    private final double[] bounds;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong writes = new AtomicLong();
+
+    private Map<String, Aggregate> byCategory = new HashMap<>();
+    private LongDoubleMap priceById = new LongDoubleMap(1024);
+    // Category of each product as an index into categories; codes are small, so a double holds them exactly
+    private LongDoubleMap categoryById = new LongDoubleMap(1024);
+    private List<String> categories = new ArrayList<>();
+    private Map<String, Integer> codes = new HashMap<>();
+
+    // Writes that arrive while a rebuild is reading the database; replayed onto the rebuilt aggregates
+    private List<Runnable> pendingWrites;
+    private volatile boolean ready;
+
+    /** Receives the rows of a rebuild. */
+    public interface Loader {
+        void add(long id, String category, double price);
+    }
+
+    /** Count, sum and price range of one category, as compared with the database. */
+    public record Totals(long count, double sum, double min, double max) {
+    }
+
+    public CategoryStatsIndex(@Value("${products.aggregates.histogram-bounds:10,25,50,100,250,500,1000}") double[] bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must be increasing: " + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** A new, empty index with the same histogram bounds. */
+    public CategoryStatsIndex emptyCopy() {
+        return new CategoryStatsIndex(bounds);
+    }
+
+    /** Grows with every write; a read of the database is comparable only if it did not change meanwhile. */
+    public long writeCount() {
+        return writes.get();
+    }
+
+    /** Moves {@code id} into {@code category} at {@code price}; a null category removes it. */
+    public void put(long id, String category, double price) {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> move(id, category, price));
+            }
+            move(id, category, price);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the fields of a partial update; a null category or price keeps the current one.
+     * Products not in the index are left out until the next rebuild.
+     */
+    public void patch(long id, String category, Double price) {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            Runnable write = () -> {
+                if (priceById.containsKey(id)) {
+                    move(id, category != null ? category : categoryOf(id), price != null ? price : priceById.get(id));
+                }
+            };
+            if (pendingWrites != null) {
+                pendingWrites.add(write);
+            }
+            write.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        put(id, null, 0);
+    }
+
+    /**
+     * Replaces the contents of the index with the rows handed to the loader by {@code source}.
+     * Reads keep being served from the current contents while the source runs.
+     */
+    public synchronized void rebuild(Consumer<Loader> source) {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        CategoryStatsIndex rebuilt = emptyCopy();
+        try {
+            source.accept((id, category, price) -> {
+                if (category != null) {
+                    rebuilt.move(id, category, price);
+                }
+            });
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            byCategory = rebuilt.byCategory;
+            priceById = rebuilt.priceById;
+            categoryById = rebuilt.categoryById;
+            categories = rebuilt.categories;
+            codes = rebuilt.codes;
+            pendingWrites.forEach(Runnable::run);
+            pendingWrites = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Statistics of every category, ordered by category name, with histograms over {@code bounds}.
+     * The bounds must be a subset of the configured ones, so that buckets only need to be merged;
+     * {@code null} uses all of them.
+     */
+    public Map<String, CategoryStats> stats(double[] bounds) {
+        int[] cuts = cuts(bounds);
+        lock.readLock().lock();
+        try {
+            Map<String, CategoryStats> stats = new TreeMap<>();
+            byCategory.forEach((category, aggregate) -> stats.put(category, aggregate.stats(this.bounds, cuts)));
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Totals> totals() {
+        lock.readLock().lock();
+        try {
+            Map<String, Totals> totals = new HashMap<>();
+            byCategory.forEach((category, aggregate) -> totals.put(category, aggregate.totals()));
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Positions in the configured bounds of the requested ones
+    private int[] cuts(double[] requested) {
+        if (requested == null) {
+            int[] all = new int[bounds.length];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        int[] cuts = new int[requested.length];
+        for (int i = 0; i < requested.length; i++) {
+            int position = Arrays.binarySearch(bounds, requested[i]);
+            if (position < 0 || (i > 0 && position <= cuts[i - 1])) {
+                throw new IllegalArgumentException("Histogram bounds must be increasing and taken from "
+                        + Arrays.toString(bounds) + ", got " + Arrays.toString(requested));
+            }
+            cuts[i] = position;
+        }
+        return cuts;
+    }
+
+    private String categoryOf(long id) {
+        double code = categoryById.get(id);
+        return Double.isNaN(code) ? null : categories.get((int) code);
+    }
+
+    private void move(long id, String category, double price) {
+        double previousPrice = priceById.get(id);
+        if (!Double.isNaN(previousPrice)) {
+            Aggregate previous = byCategory.get(categoryOf(id));
+            if (previous != null) {
+                previous.remove(previousPrice, bucketOf(previousPrice));
+                if (previous.count == 0) {
+                    byCategory.remove(categoryOf(id));
+                }
+            }
+            priceById.remove(id);
+            categoryById.remove(id);
+        }
+        if (category != null) {
+            byCategory.computeIfAbsent(category, key -> new Aggregate(bounds.length + 1)).add(price, bucketOf(price));
+            priceById.put(id, price);
+            categoryById.put(id, codes.computeIfAbsent(category, key -> {
+                categories.add(key);
+                return categories.size() - 1;
+            }));
+        }
+    }
+
+    // Bucket i holds prices in [bounds[i - 1], bounds[i])
+    private int bucketOf(double price) {
+        int position = Arrays.binarySearch(bounds, price);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private static final class Aggregate {
+
+        private long count;
+        private double sum;
+        private final TreeMap<Double, Integer> prices = new TreeMap<>();
+        private final long[] histogram;
+
+        Aggregate(int buckets) {
+            this.histogram = new long[buckets];
+        }
+
+        void add(double price, int bucket) {
+            count++;
+            sum += price;
+            prices.merge(price, 1, Integer::sum);
+            histogram[bucket]++;
+        }
+
+        void remove(double price, int bucket) {
+            count--;
+            sum -= price;
+            prices.computeIfPresent(price, (key, n) -> n == 1 ? null : n - 1);
+            histogram[bucket]--;
+        }
+
+        Totals totals() {
+            return new Totals(count, sum, prices.firstKey(), prices.lastKey());
+        }
+
+        CategoryStats stats(double[] bounds, int[] cuts) {
+            List<PriceBucket> buckets = new ArrayList<>(cuts.length + 1);
+            int from = 0;
+            for (int i = 0; i <= cuts.length; i++) {
+                // Merges the configured buckets up to the next requested bound
+                int to = i < cuts.length ? cuts[i] + 1 : histogram.length;
+                long bucketCount = 0;
+                for (int b = from; b < to; b++) {
+                    bucketCount += histogram[b];
+                }
+                buckets.add(new PriceBucket(i == 0 ? null : bounds[cuts[i - 1]], i < cuts.length ? bounds[cuts[i]] : null,
+                        bucketCount));
+                from = to;
+            }
+            return new CategoryStats(count, sum, prices.firstKey(), prices.lastKey(), sum / count, buckets);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.securityexample.securityex.index;
+
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the in-memory category statistics against the database every
+ * {@code products.aggregates.reconcile-interval} milliseconds. They drift when rows are changed
+ * outside this instance. A failed check is logged and retried at the next interval.
+ */
+@Component
+public class CategoryStatsReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryStatsReconciler.class);
+
+    private final ProductServiceImpl service;
+
+    public CategoryStatsReconciler(ProductServiceImpl service) {
+        this.service = service;
+    }
+
+    @Scheduled(fixedDelayString = "${products.aggregates.reconcile-interval:300000}",
+            initialDelayString = "${products.aggregates.reconcile-interval:300000}")
+    public void reconcile() {
+        try {
+            service.reconcileCategoryStats();
+        } catch (RuntimeException ex) {
+            logger.error("Failed to check category statistics: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.securityexample.securityex.index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code long -> double} hash map with linear probing, used to look up the
+ * indexed price of a product without boxing. Keys must be positive; {@code 0} marks a free slot.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+class LongDoubleMap {
+
+    private static final long FREE = 0L;
+
+    private long[] keys;
+    private double[] values;
+    private int size;
+    private int mask;
+
+    LongDoubleMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long key) {
+        return key > 0 && keys[slotOf(key)] == key;
+    }
+
+    /** Returns the value for {@code key}, or {@code NaN} when absent. */
+    double get(long key) {
+        int slot = slotOf(key);
+        return key > 0 && keys[slot] == key ? values[slot] : Double.NaN;
+    }
+
+    void put(long key, double value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+        int slot = slotOf(key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    boolean remove(long key) {
+        int slot = slotOf(key);
+        if (key <= 0 || keys[slot] != key) {
+            return false;
+        }
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = FREE;
+        size--;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private int slotOf(long key) {
+        int slot = hash(key);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new double[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.securityexample.securityex.index;
+
+/**
+ * Products priced within {@code [from, to)}. The first bucket has no lower bound and the last no
+ * upper bound; the missing bound is {@code null}.
+ */
+public record PriceBucket(Double from, Double to, long count) {
+}
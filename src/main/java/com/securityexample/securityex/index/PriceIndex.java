@@ -0,0 +1,460 @@
+package com.securityexample.securityex.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of {@code (price, id)} pairs kept sorted in parallel primitive arrays, so price
+ * ordered scans, top-N queries and price ranges are answered with a binary search and an array
+ * walk instead of an {@code ORDER BY price} over the table.
+ * <p>
+ * The index is maintained incrementally by the service write paths. Until the first
+ * {@link #rebuild(Consumer)} completes it reports itself as not {@link #isReady() ready} and
+ * callers are expected to fall back to the database.
+ * <p>
+ * Each entry keeps the product version it was written at. Writers apply their changes after commit
+ * in whatever order their threads get here, so a put older than the stored entry is ignored rather
+ * than letting an earlier price win. A batch of puts is merged into the arrays in one pass.
+ */
+@Component
+public class PriceIndex {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Sorted by price, then id; versions[i] is the product version of the entry at i
+    private double[] prices = new double[1024];
+    private long[] ids = new long[1024];
+    private long[] versions = new long[1024];
+    private int size;
+    private final LongDoubleMap priceById = new LongDoubleMap(1024);
+
+    // Writes that arrive while a rebuild is reading the database; replayed onto the rebuilt arrays
+    private List<Runnable> pendingWrites;
+    private volatile boolean ready;
+
+    /** Receives the rows of a rebuild. */
+    public interface Loader {
+        void add(long id, double price, long version);
+    }
+
+    /** The price of product {@code id} as of {@code version}. */
+    public record Entry(long id, double price, long version) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Indexes product {@code id} at {@code price}, unless the entry is already at {@code version} or later. */
+    public void put(long id, double price, long version) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Only persisted products can be indexed, got id " + id);
+        }
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> insertOrMove(id, price, version));
+            }
+            insertOrMove(id, price, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies every entry as {@link #put} would, with one pass over the arrays for the whole batch
+     * instead of one shift per entry.
+     */
+    public void putAll(List<Entry> entries) {
+        for (Entry entry : entries) {
+            if (entry.id() <= 0) {
+                throw new IllegalArgumentException("Only persisted products can be indexed, got id " + entry.id());
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        Entry[] batch = entries.toArray(Entry[]::new);
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> merge(batch.clone()));
+            }
+            merge(batch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> delete(id));
+            }
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the rows handed to the loader by {@code source}.
+     * Reads keep being served from the current contents while the source runs.
+     */
+    public synchronized void rebuild(Consumer<Loader> source) {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Rows rows = new Rows();
+        try {
+            source.accept(rows);
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+        sort(rows.prices, rows.ids, rows.versions, 0, rows.count - 1);
+
+        lock.writeLock().lock();
+        try {
+            prices = rows.prices;
+            ids = rows.ids;
+            versions = rows.versions;
+            size = rows.count;
+            priceById.clear();
+            for (int i = 0; i < size; i++) {
+                priceById.put(ids[i], prices[i]);
+            }
+            pendingWrites.forEach(Runnable::run);
+            pendingWrites = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} ids, cheapest first. */
+    public long[] ascending(int limit) {
+        lock.readLock().lock();
+        try {
+            return copyAscending(0, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} ids ordered after {@code (price, id)}, cheapest first. */
+    public long[] ascendingAfter(double price, long id, int limit) {
+        lock.readLock().lock();
+        try {
+            return copyAscending(upperBound(price, id), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} ids, most expensive first. */
+    public long[] descending(int limit) {
+        lock.readLock().lock();
+        try {
+            return copyDescending(size - 1, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} ids ordered before {@code (price, id)}, most expensive first. */
+    public long[] descendingBefore(double price, long id, int limit) {
+        lock.readLock().lock();
+        try {
+            return copyDescending(lowerBound(price, id) - 1, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} ids priced within {@code [min, max]}, cheapest first. */
+    public long[] range(double min, double max, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(min, Long.MIN_VALUE);
+            int to = upperBound(max, Long.MAX_VALUE);
+            return Arrays.copyOfRange(ids, from, from + Math.max(0, Math.min(limit, to - from)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] copyAscending(int from, int limit) {
+        int count = Math.max(0, Math.min(limit, size - from));
+        return count == 0 ? NO_IDS : Arrays.copyOfRange(ids, from, from + count);
+    }
+
+    private long[] copyDescending(int from, int limit) {
+        int count = Math.max(0, Math.min(limit, from + 1));
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = ids[from - i];
+        }
+        return result;
+    }
+
+    private void insertOrMove(long id, double price, long version) {
+        if (priceById.containsKey(id)) {
+            int current = lowerBound(priceById.get(id), id);
+            if (versions[current] >= version) {
+                return;
+            }
+            if (Double.compare(prices[current], price) == 0) {
+                versions[current] = version;
+                return;
+            }
+            delete(id);
+        }
+        int position = upperBound(price, id);
+        ensureCapacity(size + 1);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(prices, position, prices, position + 1, size - position);
+        System.arraycopy(versions, position, versions, position + 1, size - position);
+        ids[position] = id;
+        prices[position] = price;
+        versions[position] = version;
+        size++;
+        priceById.put(id, price);
+    }
+
+    // Drops the moved entries in one compaction, then merges the new ones in from the back
+    private void merge(Entry[] batch) {
+        // Of several entries for one id, only the latest version counts
+        Arrays.sort(batch, Comparator.comparingLong(Entry::id).thenComparingLong(Entry::version));
+        int[] moved = new int[batch.length];
+        int movedCount = 0;
+        Entry[] inserts = new Entry[batch.length];
+        int insertCount = 0;
+        for (int i = 0; i < batch.length; i++) {
+            Entry entry = batch[i];
+            if (i + 1 < batch.length && batch[i + 1].id() == entry.id()) {
+                continue;
+            }
+            if (priceById.containsKey(entry.id())) {
+                int current = lowerBound(priceById.get(entry.id()), entry.id());
+                if (versions[current] >= entry.version()) {
+                    continue;
+                }
+                if (Double.compare(prices[current], entry.price()) == 0) {
+                    versions[current] = entry.version();
+                    continue;
+                }
+                moved[movedCount++] = current;
+            }
+            inserts[insertCount++] = entry;
+        }
+
+        if (movedCount > 0) {
+            Arrays.sort(moved, 0, movedCount);
+            int kept = moved[0];
+            for (int from = moved[0], next = 0; from < size; from++) {
+                if (next < movedCount && moved[next] == from) {
+                    next++;
+                    continue;
+                }
+                ids[kept] = ids[from];
+                prices[kept] = prices[from];
+                versions[kept] = versions[from];
+                kept++;
+            }
+            size = kept;
+        }
+
+        Arrays.sort(inserts, 0, insertCount, Comparator.comparingDouble(Entry::price).thenComparingLong(Entry::id));
+        ensureCapacity(size + insertCount);
+        int existing = size - 1;
+        for (int next = insertCount - 1, target = size + insertCount - 1; next >= 0; target--) {
+            Entry entry = inserts[next];
+            if (existing >= 0 && compare(prices[existing], ids[existing], entry.price(), entry.id()) > 0) {
+                ids[target] = ids[existing];
+                prices[target] = prices[existing];
+                versions[target] = versions[existing];
+                existing--;
+            } else {
+                ids[target] = entry.id();
+                prices[target] = entry.price();
+                versions[target] = entry.version();
+                priceById.put(entry.id(), entry.price());
+                next--;
+            }
+        }
+        size += insertCount;
+    }
+
+    private void delete(long id) {
+        if (!priceById.containsKey(id)) {
+            return;
+        }
+        int position = lowerBound(priceById.get(id), id);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        System.arraycopy(prices, position + 1, prices, position, size - position - 1);
+        System.arraycopy(versions, position + 1, versions, position, size - position - 1);
+        size--;
+        priceById.remove(id);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, grown);
+            prices = Arrays.copyOf(prices, grown);
+            versions = Arrays.copyOf(versions, grown);
+        }
+    }
+
+    // First position whose entry is >= (price, id)
+    private int lowerBound(double price, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, price, id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position whose entry is > (price, id)
+    private int upperBound(double price, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, price, id) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int position, double price, long id) {
+        int byPrice = Double.compare(prices[position], price);
+        return byPrice != 0 ? byPrice : Long.compare(ids[position], id);
+    }
+
+    // Quicksort of the parallel arrays by (price, id); recursion goes into the smaller half
+    private static void sort(double[] prices, long[] ids, long[] versions, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                insertionSort(prices, ids, versions, low, high);
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            double pivotPrice = prices[middle];
+            long pivotId = ids[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(prices[i], ids[i], pivotPrice, pivotId) < 0) {
+                    i++;
+                }
+                while (compare(prices[j], ids[j], pivotPrice, pivotId) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(prices, ids, versions, i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(prices, ids, versions, low, j);
+                low = i;
+            } else {
+                sort(prices, ids, versions, i, high);
+                high = j;
+            }
+        }
+    }
+
+    private static void insertionSort(double[] prices, long[] ids, long[] versions, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            double price = prices[i];
+            long id = ids[i];
+            long version = versions[i];
+            int j = i - 1;
+            while (j >= low && compare(prices[j], ids[j], price, id) > 0) {
+                prices[j + 1] = prices[j];
+                ids[j + 1] = ids[j];
+                versions[j + 1] = versions[j];
+                j--;
+            }
+            prices[j + 1] = price;
+            ids[j + 1] = id;
+            versions[j + 1] = version;
+        }
+    }
+
+    private static int compare(double leftPrice, long leftId, double rightPrice, long rightId) {
+        int byPrice = Double.compare(leftPrice, rightPrice);
+        return byPrice != 0 ? byPrice : Long.compare(leftId, rightId);
+    }
+
+    private static void swap(double[] prices, long[] ids, long[] versions, int i, int j) {
+        double price = prices[i];
+        prices[i] = prices[j];
+        prices[j] = price;
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        long version = versions[i];
+        versions[i] = versions[j];
+        versions[j] = version;
+    }
+
+    private static final class Rows implements Loader {
+        private double[] prices = new double[1024];
+        private long[] ids = new long[1024];
+        private long[] versions = new long[1024];
+        private int count;
+
+        @Override
+        public void add(long id, double price, long version) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                prices = Arrays.copyOf(prices, count * 2);
+                versions = Arrays.copyOf(versions, count * 2);
+            }
+            ids[count] = id;
+            prices[count] = price;
+            versions[count] = version;
+            count++;
+        }
+    }
+}
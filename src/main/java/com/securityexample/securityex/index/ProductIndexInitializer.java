@@ -0,0 +1,33 @@
+package com.securityexample.securityex.index;
+
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the in-memory product indexes once the application is up. A failure is logged rather
+ * than propagated: the service keeps answering from the database until a later rebuild succeeds.
+ */
+@Component
+public class ProductIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexInitializer.class);
+
+    private final ProductServiceImpl service;
+
+    public ProductIndexInitializer(ProductServiceImpl service) {
+        this.service = service;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexes() {
+        try {
+            service.rebuildIndexes();
+        } catch (RuntimeException ex) {
+            logger.error("Failed to build product indexes, serving from the database: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.securityexample.securityex.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over product names and descriptions. Queries are ranked with BM25,
+ * with name terms counted {@value #NAME_BOOST} times so that title matches outrank mentions in
+ * the description. Terms are kept in a sorted map, which also serves prefix autocompletion.
+ * <p>
+ * Query cost depends on the posting lists of the query terms rather than on the catalog size.
+ * Maintained incrementally by the service write paths and rebuilt from the database in the same
+ * way as {@link PriceIndex}.
+ */
+@Component
+public class SearchIndex {
+
+    static final int NAME_BOOST = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Documents documents = new Documents();
+
+    // Writes that arrive while a rebuild is reading the database; replayed onto the rebuilt index
+    private List<Runnable> pendingWrites;
+    private volatile boolean ready;
+
+    /** Receives the rows of a rebuild. */
+    public interface Loader {
+        void add(long id, String name, String description);
+    }
+
+    /** One page of ranked ids together with the total number of matching documents. */
+    public record Hits(long[] ids, int total) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void put(long id, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> documents.put(id, name, description));
+            }
+            documents.put(id, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (pendingWrites != null) {
+                pendingWrites.add(() -> documents.remove(id));
+            }
+            documents.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of the index with the rows handed to the loader by {@code source}.
+     * Searches keep being served from the current contents while the source runs.
+     */
+    public synchronized void rebuild(Consumer<Loader> source) {
+        lock.writeLock().lock();
+        try {
+            pendingWrites = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Documents rebuilt = new Documents();
+        try {
+            source.accept(rebuilt::put);
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendingWrites = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            documents = rebuilt;
+            pendingWrites.forEach(Runnable::run);
+            pendingWrites = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Ids of the documents matching any term of {@code query}, best first, skipping {@code offset}. */
+    public Hits search(String query, int offset, int limit) {
+        List<String> terms = tokenize(query);
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = documents.score(terms);
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            int from = Math.min(offset, ranked.size());
+            int to = Math.min(from + limit, ranked.size());
+            long[] ids = new long[to - from];
+            for (int i = from; i < to; i++) {
+                ids[i - from] = ranked.get(i).getKey();
+            }
+            return new Hits(ids, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code limit} indexed terms starting with {@code prefix}, most common first. */
+    public List<String> suggest(String prefix, int limit) {
+        String normalized = prefix.toLowerCase(Locale.ROOT).strip();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<String, Map<Long, Integer>>> matches = new ArrayList<>(
+                    documents.postings.subMap(normalized, true, normalized + Character.MAX_VALUE, false).entrySet());
+            matches.sort(Comparator.<Map.Entry<String, Map<Long, Integer>>>comparingInt(entry -> entry.getValue().size())
+                    .reversed()
+                    .thenComparing(Map.Entry::getKey));
+            return matches.stream().limit(limit).map(Map.Entry::getKey).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letterOrDigit = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Documents {
+        // term -> (document id -> weighted term frequency)
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        // document id -> its weighted term frequencies, needed to unindex it again
+        private final Map<Long, Map<String, Integer>> termsById = new HashMap<>();
+        private final Map<Long, Integer> lengthById = new HashMap<>();
+        private long totalLength;
+
+        void put(long id, String name, String description) {
+            remove(id);
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String term : tokenize(name)) {
+                frequencies.merge(term, NAME_BOOST, Integer::sum);
+            }
+            for (String term : tokenize(description)) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(id, entry.getValue());
+                length += entry.getValue();
+            }
+            termsById.put(id, frequencies);
+            lengthById.put(id, length);
+            totalLength += length;
+        }
+
+        void remove(long id) {
+            Map<String, Integer> frequencies = termsById.remove(id);
+            if (frequencies == null) {
+                return;
+            }
+            for (String term : frequencies.keySet()) {
+                Map<Long, Integer> documents = postings.get(term);
+                documents.remove(id);
+                if (documents.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= lengthById.remove(id);
+        }
+
+        Map<Long, Double> score(List<String> terms) {
+            Map<Long, Double> scores = new HashMap<>();
+            int documentCount = termsById.size();
+            if (documentCount == 0) {
+                return scores;
+            }
+            double averageLength = (double) totalLength / documentCount;
+            for (String term : new HashSet<>(terms)) {
+                Map<Long, Integer> documents = postings.get(term);
+                if (documents == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - documents.size() + 0.5) / (documents.size() + 0.5));
+                for (Map.Entry<Long, Integer> posting : documents.entrySet()) {
+                    int frequency = posting.getValue();
+                    double norm = K1 * (1 - B + B * lengthById.get(posting.getKey()) / averageLength);
+                    scores.merge(posting.getKey(), idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                }
+            }
+            return scores;
+        }
+    }
+}
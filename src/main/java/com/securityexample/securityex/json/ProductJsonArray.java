@@ -0,0 +1,19 @@
+package com.securityexample.securityex.json;
+
+import java.util.List;
+
+/**
+ * Response body made of already serialized JSON values, written as one JSON array by
+ * {@link ProductJsonArrayHttpMessageConverter} without going through Jackson again.
+ */
+public record ProductJsonArray(List<byte[]> elements) {
+
+    /** Length of the array once written: the elements, a comma between each and the brackets. */
+    public long contentLength() {
+        long length = 2 + Math.max(0, elements.size() - 1);
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,58 @@
+package com.securityexample.securityex.json;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a {@link ProductJsonArray} by copying its fragments to the response between brackets and
+ * commas. Registered ahead of the Jackson converter by Spring Boot, as a converter bean.
+ */
+@Component
+public class ProductJsonArrayHttpMessageConverter extends AbstractHttpMessageConverter<ProductJsonArray> {
+
+    public ProductJsonArrayHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ProductJsonArray.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ProductJsonArray readInternal(Class<? extends ProductJsonArray> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Pre-serialized product arrays are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(ProductJsonArray array, MediaType contentType) {
+        return array.contentLength();
+    }
+
+    @Override
+    protected void writeInternal(ProductJsonArray array, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        out.write('[');
+        boolean first = true;
+        for (byte[] element : array.elements()) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(element);
+            first = false;
+        }
+        out.write(']');
+    }
+}
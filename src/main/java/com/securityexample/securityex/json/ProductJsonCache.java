@@ -0,0 +1,122 @@
+package com.securityexample.securityex.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.securityexample.securityex.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * UTF-8 JSON of recently served products, so a hot product is serialized once per version instead of
+ * once per request. Entries remember the version they were written from and are only reused for that
+ * version; the write paths also drop them. The cache is bounded by bytes, and W-TinyLFU admission keeps
+ * one-off reads of large listings from pushing out the hot products. Products whose JSON is at least
+ * {@code products.json-cache.gzip-min-size} also keep a gzipped copy.
+ */
+@Component
+public class ProductJsonCache implements MeterBinder {
+
+    // Rough per-entry cost of the key, entry and arrays beyond their contents
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final Cache<Long, Entry> cache;
+    private final ObjectWriter writer;
+    private final long gzipMinSize;
+
+    public ProductJsonCache(ObjectMapper objectMapper,
+                            @Value("${products.json-cache.max-size:64MB}") DataSize maxSize,
+                            @Value("${products.json-cache.gzip-min-size:1KB}") DataSize gzipMinSize) {
+        this.writer = objectMapper.writerFor(Product.class);
+        this.gzipMinSize = gzipMinSize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long id, Entry entry) -> entry.weight())
+                .recordStats()
+                .build();
+    }
+
+    /** JSON of {@code product}, serialized only if no entry exists for its id and version. */
+    public byte[] json(Product product) {
+        return entry(product).json();
+    }
+
+    /** Gzipped JSON of {@code product}, or {@code null} if it is too small to be worth compressing. */
+    public byte[] gzip(Product product) {
+        return entry(product).gzip();
+    }
+
+    /** JSON array of {@code products}, assembled from their cached fragments when written. */
+    public ProductJsonArray array(List<Product> products) {
+        List<byte[]> elements = new ArrayList<>(products.size());
+        for (Product product : products) {
+            elements.add(json(product));
+        }
+        return new ProductJsonArray(elements);
+    }
+
+    public void invalidate(long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /** Publishes size, hits, misses and evictions as {@code cache.*} meters tagged {@code cache=product-json}. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "product-json");
+    }
+
+    private Entry entry(Product product) {
+        Entry entry = cache.getIfPresent(product.getId());
+        if (entry != null && entry.version() == product.getVersion()) {
+            return entry;
+        }
+        // Not a compute: serializing twice on a concurrent miss is cheaper than blocking readers of the bin
+        entry = serialize(product);
+        cache.put(product.getId(), entry);
+        return entry;
+    }
+
+    private Entry serialize(Product product) {
+        try {
+            byte[] json = writer.writeValueAsBytes(product);
+            return new Entry(product.getVersion(), json, json.length >= gzipMinSize ? gzip(json) : null);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot serialize product " + product.getId(), ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        byte[] compressed = out.toByteArray();
+        return compressed.length < json.length ? compressed : null;
+    }
+
+    private record Entry(long version, byte[] json, byte[] gzip) {
+
+        int weight() {
+            return ENTRY_OVERHEAD + json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
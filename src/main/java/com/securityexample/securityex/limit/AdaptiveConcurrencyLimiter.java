@@ -0,0 +1,116 @@
+package com.securityexample.securityex.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Concurrency limit that adapts to observed latency, after the gradient algorithm of Netflix's
+ * concurrency-limits library. Each completed request compares its latency with a long-term average:
+ * while latency holds steady and the limit is in use, the limit grows by about its square root, and
+ * once latency rises past the tolerance it shrinks in proportion. A dropped request, one the
+ * backend could not serve, cuts the limit multiplicatively.
+ * <p>
+ * Lock-free: admission is a compare-and-set on the in-flight count, and the limit and the average
+ * latency are doubles updated with compare-and-set on their raw bits.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    // How much of each new estimate is blended into the limit
+    private static final double SMOOTHING = 0.2;
+    // Latency may grow to this multiple of the long-term average before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    // Weight of a sample in the long-term latency, roughly an average over the last 600 requests
+    private static final double LONG_RTT_WEIGHT = 2.0 / 601;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong estimatedLimit;
+    private final AtomicLong longRttNanos = new AtomicLong(Double.doubleToRawLongBits(0));
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits: initial " + initialLimit + ", min " + minLimit + ", max " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+    }
+
+    /** Takes a slot, or returns false and counts a rejection when the limit is reached. */
+    public boolean tryAcquire() {
+        int limit = limit();
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /** Releases a slot whose request completed in {@code rttNanos} and feeds its latency into the limit. */
+    public void onSuccess(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        double shortRtt = Math.max(rttNanos, 1);
+        double longRtt = updateLongRtt(shortRtt);
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        updateLimit(limit -> {
+            // An underused limit says nothing about how much more the backend could take
+            if (gradient == 1.0 && inFlightBefore < limit / 2) {
+                return limit;
+            }
+            double next = limit * gradient + Math.sqrt(limit);
+            return limit * (1 - SMOOTHING) + next * SMOOTHING;
+        });
+    }
+
+    /** Releases a slot whose request was dropped by an overloaded backend. */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        updateLimit(limit -> limit * BACKOFF);
+    }
+
+    /** Releases a slot without using its outcome, e.g. when the request failed for unrelated reasons. */
+    public void onIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    public int limit() {
+        return (int) Double.longBitsToDouble(estimatedLimit.get());
+    }
+
+    public ConcurrencyLimitStats stats() {
+        return new ConcurrencyLimitStats(limit(), inFlight.get(), rejected.get());
+    }
+
+    private double updateLongRtt(double shortRtt) {
+        long previous;
+        double value;
+        do {
+            previous = longRttNanos.get();
+            double current = Double.longBitsToDouble(previous);
+            value = current == 0 ? shortRtt : current + LONG_RTT_WEIGHT * (shortRtt - current);
+            // Pull a long average left high by a past spike back down, so the limit can recover
+            if (value > 2 * shortRtt) {
+                value *= 0.95;
+            }
+        } while (!longRttNanos.compareAndSet(previous, Double.doubleToRawLongBits(value)));
+        return value;
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        long previous;
+        double value;
+        do {
+            previous = estimatedLimit.get();
+            value = Math.max(minLimit, Math.min(maxLimit, update.applyAsDouble(Double.longBitsToDouble(previous))));
+        } while (!estimatedLimit.compareAndSet(previous, Double.doubleToRawLongBits(value)));
+    }
+}
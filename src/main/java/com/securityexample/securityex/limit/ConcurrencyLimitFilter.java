@@ -0,0 +1,124 @@
+package com.securityexample.securityex.limit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sheds load in front of the product endpoints. Reads and writes each pass an
+ * {@link AdaptiveConcurrencyLimiter}; a request over the limit fails at once with {@code 503} and
+ * {@code Retry-After} instead of queueing behind a slow database. Stats, the streamed export and the
+ * change stream are not limited: the first must stay reachable under overload and the others hold
+ * their slot for minutes.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private static final String PRODUCTS_PATH = "/api/v1/products";
+    private static final String STATS_PATH = PRODUCTS_PATH + "/stats";
+    private static final String EXPORT_PATH = PRODUCTS_PATH + "/export";
+    private static final String CHANGE_STREAM_PATH = PRODUCTS_PATH + "/changes/stream";
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final AdaptiveConcurrencyLimiter reads;
+    private final AdaptiveConcurrencyLimiter writes;
+
+    public ConcurrencyLimitFilter(@Value("${products.limit.enabled:true}") boolean enabled,
+                                  @Value("${products.limit.read.initial:20}") int readInitial,
+                                  @Value("${products.limit.read.min:4}") int readMin,
+                                  @Value("${products.limit.read.max:200}") int readMax,
+                                  @Value("${products.limit.write.initial:10}") int writeInitial,
+                                  @Value("${products.limit.write.min:2}") int writeMin,
+                                  @Value("${products.limit.write.max:50}") int writeMax,
+                                  @Value("${products.limit.retry-after:1s}") Duration retryAfter) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.reads = new AdaptiveConcurrencyLimiter(readInitial, readMin, readMax);
+        this.writes = new AdaptiveConcurrencyLimiter(writeInitial, writeMin, writeMax);
+    }
+
+    public Map<String, ConcurrencyLimitStats> stats() {
+        Map<String, ConcurrencyLimitStats> stats = new LinkedHashMap<>();
+        stats.put("read", reads.stats());
+        stats.put("write", writes.stats());
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "read", reads);
+        bind(registry, "write", writes);
+    }
+
+    private static void bind(MeterRegistry registry, String type, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("products.limit.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit").tag("type", type).register(registry);
+        Gauge.builder("products.limit.in.flight", limiter, l -> l.stats().inFlight())
+                .description("Requests holding a concurrency slot").tag("type", type).register(registry);
+        FunctionCounter.builder("products.limit.rejected", limiter, l -> l.stats().rejected())
+                .description("Requests rejected with 503 over the concurrency limit").tag("type", type).register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !enabled
+                || !path.startsWith(PRODUCTS_PATH)
+                || path.startsWith(STATS_PATH)
+                || path.equals(EXPORT_PATH)
+                || path.equals(CHANGE_STREAM_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        AdaptiveConcurrencyLimiter limiter = read ? reads : writes;
+        if (!limiter.tryAcquire()) {
+            // Debug only: at the rate requests are shed, a line each would add to the overload
+            logger.debug("Rejected {} {}: {} limit of {} reached", request.getMethod(), request.getRequestURI(),
+                    read ? "read" : "write", limiter.limit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many concurrent requests. Please retry later.");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (!completed) {
+                limiter.onIgnored();
+            } else if (response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                limiter.onDropped();
+            } else {
+                limiter.onSuccess(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.securityexample.securityex.limit;
+
+/**
+ * Point-in-time state of an {@link AdaptiveConcurrencyLimiter}: its current limit, the requests
+ * holding a slot and the requests rejected since startup.
+ */
+public record ConcurrencyLimitStats(int limit, int inFlight, long rejected) {
+}
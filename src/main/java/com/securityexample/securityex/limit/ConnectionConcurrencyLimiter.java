@@ -0,0 +1,134 @@
+package com.securityexample.securityex.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+
+/**
+ * Caps the number of database connections held at once when requests are handled on virtual threads.
+ * The Tomcat pool used to bound that number implicitly; virtual threads do not, so a burst would
+ * otherwise pile thousands of threads onto the connection pool, each timing out on its own.
+ * <p>
+ * The application's {@code dataSource} bean is wrapped so that a permit is taken when a connection is
+ * opened and given back when it is closed. Transactions hold their connection until they end, so the
+ * permit covers every statement of the transaction, whichever of JPA, {@code JdbcTemplate} or the change
+ * log issues it. Callers wait on a fair semaphore, which parks a virtual thread without pinning its
+ * carrier, and fail with a {@link TransientDataAccessResourceException} after the acquire timeout.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConnectionConcurrencyLimiter implements BeanPostProcessor, MeterBinder {
+
+    // The data source JPA and JdbcTemplate are configured with, in both the single and the replica setup
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+    private final Semaphore permits;
+
+    public ConnectionConcurrencyLimiter(@Value("${products.db.max-concurrency:10}") int maxConcurrency,
+                                        @Value("${products.db.acquire-timeout:5s}") Duration acquireTimeout) {
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        return new LimitedDataSource(dataSource);
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.db.permits.available", permits, Semaphore::availablePermits)
+                .description("Free connection slots under virtual threads").register(registry);
+        Gauge.builder("products.db.permits.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for a connection slot").register(registry);
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new TransientDataAccessResourceException(
+                        "Timed out waiting for one of " + maxConcurrency + " database slots");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while waiting for a database slot", ex);
+        }
+    }
+
+    // Gives the permit back on the first close; later closes are passed on but release nothing
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                });
+    }
+
+    private final class LimitedDataSource extends DelegatingDataSource {
+
+        LimitedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            try {
+                return releasingOnClose(obtainTargetDataSource().getConnection());
+            } catch (SQLException | RuntimeException ex) {
+                permits.release();
+                throw ex;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            try {
+                return releasingOnClose(obtainTargetDataSource().getConnection(username, password));
+            } catch (SQLException | RuntimeException ex) {
+                permits.release();
+                throw ex;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.securityexample.securityex.pagination;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code next} is the opaque cursor to pass back
+ * to fetch the following page, or {@code null} when this is the last page.
+ */
+public record CursorPage<T>(List<T> items, String next) {
+}
@@ -0,0 +1,32 @@
+package com.securityexample.securityex.pagination;
+
+import com.securityexample.securityex.entity.Product;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Seek position of a keyset page: the {@code (price, id)} of the last row returned.
+ * Listings ordered by id only ignore the price component.
+ */
+public record ProductCursor(double price, long id) {
+
+    public static ProductCursor of(Product product) {
+        return new ProductCursor(product.getPrice(), product.getId());
+    }
+
+    public String encode() {
+        String raw = price + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new ProductCursor(Double.parseDouble(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
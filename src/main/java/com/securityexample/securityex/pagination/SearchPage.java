@@ -0,0 +1,9 @@
+package com.securityexample.securityex.pagination;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results. {@code total} is the number of matches across all pages.
+ */
+public record SearchPage<T>(List<T> items, long total, int page, int size) {
+}
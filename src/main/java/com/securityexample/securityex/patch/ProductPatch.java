@@ -0,0 +1,16 @@
+package com.securityexample.securityex.patch;
+
+/**
+ * Body of a partial update. Only non-null fields are written; {@code version} is the version the
+ * client last read and is required, so that concurrent writers cannot overwrite each other.
+ */
+public record ProductPatch(String name, String category, Double price, String description, Long version) {
+
+    public boolean isEmpty() {
+        return name == null && category == null && price == null && description == null;
+    }
+
+    public boolean changesText() {
+        return name != null || description != null;
+    }
+}
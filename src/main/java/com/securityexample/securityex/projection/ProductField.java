@@ -0,0 +1,50 @@
+package com.securityexample.securityex.projection;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Columns a listing can be narrowed to with {@code ?fields=}. The id is always selected: it orders
+ * the rows and keys the cursors.
+ */
+public enum ProductField {
+    ID, NAME, CATEGORY, PRICE, DESCRIPTION, VERSION;
+
+    private final String property = name().toLowerCase();
+
+    /** Name of the entity attribute, which is also the key in the projected rows. */
+    public String property() {
+        return property;
+    }
+
+    /** Parses field names such as {@code ["name", "price"]}; the id is added if missing. */
+    public static Set<ProductField> parse(List<String> names) {
+        Set<ProductField> fields = EnumSet.of(ID);
+        for (String name : names) {
+            fields.add(of(name.strip()));
+        }
+        return fields;
+    }
+
+    /** Compact key of a field set, e.g. for telling apart the ETags of different projections. */
+    public static int mask(Set<ProductField> fields) {
+        int mask = 0;
+        for (ProductField field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        return mask;
+    }
+
+    private static ProductField of(String name) {
+        for (ProductField field : values()) {
+            if (field.property.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + name + " (expected any of "
+                + Arrays.stream(values()).map(ProductField::property).collect(Collectors.joining(", ")) + ")");
+    }
+}
@@ -0,0 +1,24 @@
+package com.securityexample.securityex.repository;
+
+import com.securityexample.securityex.entity.ProductChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    List<ProductChange> findBySeqGreaterThanAndChangedAtLessThanEqualOrderBySeqAsc(long seq, Instant changedAt, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(c.seq), 0) FROM ProductChange c")
+    long findLastSeq();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductChange c WHERE c.changedAt < :changedAt")
+    int deleteChangedBefore(Instant changedAt);
+}
@@ -1,17 +1,27 @@
 package com.securityexample.securityex.repository;
 
 import com.securityexample.securityex.entity.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
     List<Product> findProductByName(String name);
     List<Product> findProductByCategory(String category);
+    List<Product> findByCategoryInOrderByIdAsc(List<String> categories);
+
+    @Query("SELECT p.id FROM Product p WHERE p.category = :category ORDER BY p.id")
+    List<Long> findIdsByCategory(String category);
 
     @Query("SELECT p FROM Product p ORDER BY p.price ASC")
     List<Product> findAllProductsByPriceAsc();
@@ -19,4 +29,42 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 //    List<Product> findAllByOrderByPriceAsc(); // This method will generate a query to fetch all Product entities and sort them by the price field in ascending order.
     List<Product> findAllByOrderByPriceDesc();
 
+    // Keyset pagination: each page seeks past the last (price, id) or id of the previous one,
+    // so deep pages cost the same as the first instead of scanning and discarding an OFFSET.
+    List<Product> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+    List<Product> findAllByOrderByPriceAscIdAsc(Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.price > :price OR (p.price = :price AND p.id > :id) ORDER BY p.price ASC, p.id ASC")
+    List<Product> findPriceAscAfter(double price, long id, Limit limit);
+
+    List<Product> findAllByOrderByPriceDescIdDesc(Limit limit);
+
+    @Query("SELECT p FROM Product p WHERE p.price < :price OR (p.price = :price AND p.id < :id) ORDER BY p.price DESC, p.id DESC")
+    List<Product> findPriceDescAfter(double price, long id, Limit limit);
+
+    List<Product> findByPriceBetweenOrderByPriceAscIdAsc(double min, double max, Limit limit);
+
+    // Rows of {category, count, sum, min, max} the in-memory category statistics are checked against
+    @Query("SELECT p.category, COUNT(p), SUM(p.price), MIN(p.price), MAX(p.price) FROM Product p"
+            + " WHERE p.category IS NOT NULL GROUP BY p.category")
+    List<Object[]> aggregateByCategory();
+
+    // Substring scan used only until the search index has been built
+    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :text, '%'))" +
+            " OR LOWER(p.description) LIKE LOWER(CONCAT('%', :text, '%')) ORDER BY p.id")
+    Page<Product> findByText(String text, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    // Unlike deleteById, this does not load the entity first; the affected-row count tells whether it existed
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Product p WHERE p.id = :id")
+    int deleteProductById(long id);
+
+    // Rows of {category, count}
+    @Query("SELECT p.category, COUNT(p) FROM Product p WHERE p.category IS NOT NULL GROUP BY p.category")
+    List<Object[]> countByCategory();
 }
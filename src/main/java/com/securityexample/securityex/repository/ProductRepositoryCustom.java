@@ -0,0 +1,55 @@
+package com.securityexample.securityex.repository;
+
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface ProductRepositoryCustom {
+
+    // Full-table scans read straight off the result set. Each must be consumed inside a transaction and
+    // closed afterwards, which releases the result set. On MySQL no other statement may run on the
+    // connection until then.
+
+    Stream<Product> streamAllBy();
+
+    // Rows of {id, price, version} used to rebuild the in-memory price index
+    Stream<Object[]> streamIdAndPrice();
+
+    // Rows of {id, category} used to rebuild the in-memory category index
+    Stream<Object[]> streamIdAndCategory();
+
+    // Rows of {id, name, description} used to rebuild the in-memory search index
+    Stream<Object[]> streamIdAndText();
+
+    // Rows of {id, category, price} used to rebuild the in-memory category statistics
+    Stream<Object[]> streamIdCategoryAndPrice();
+
+    /**
+     * Writes the non-null fields of {@code patch} and bumps the version with a single
+     * {@code UPDATE ... WHERE id = ? AND version = ?}. Returns the number of rows updated, which is
+     * 0 when the product does not exist or its version no longer matches.
+     */
+    int patch(long id, long version, ProductPatch patch);
+
+    /**
+     * Loads the products matching {@code where}, or every product if it is null, in {@code sort} order and
+     * up to {@code limit} rows. Used for listings whose filters are combined at request time.
+     */
+    List<Product> findMatching(Specification<Product> where, Sort sort, Limit limit);
+
+    /**
+     * Selects only the columns of {@code fields} from the rows matching {@code where}, or from every row
+     * if it is null. Each row comes back as a map from field name to value, in field order. The rows are
+     * plain values, not managed entities, so nothing enters the persistence context or gets a dirty-checking
+     * snapshot.
+     */
+    List<Map<String, Object>> findFields(Set<ProductField> fields, Specification<Product> where, Sort sort, Limit limit);
+}
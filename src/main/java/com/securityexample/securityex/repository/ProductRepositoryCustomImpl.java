@@ -0,0 +1,157 @@
+package com.securityexample.securityex.repository;
+
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    // Rows pulled per round trip by the scans, on drivers that honour a fetch size per statement
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final EntityManager entityManager;
+    private volatile Integer streamFetchSize;
+
+    ProductRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Stream<Product> streamAllBy() {
+        return stream("SELECT p FROM Product p ORDER BY p.id", Product.class);
+    }
+
+    @Override
+    public Stream<Object[]> streamIdAndPrice() {
+        return stream("SELECT p.id, p.price, p.version FROM Product p", Object[].class);
+    }
+
+    @Override
+    public Stream<Object[]> streamIdAndCategory() {
+        return stream("SELECT p.id, p.category FROM Product p", Object[].class);
+    }
+
+    @Override
+    public Stream<Object[]> streamIdAndText() {
+        return stream("SELECT p.id, p.name, p.description FROM Product p", Object[].class);
+    }
+
+    @Override
+    public Stream<Object[]> streamIdCategoryAndPrice() {
+        return stream("SELECT p.id, p.category, p.price FROM Product p", Object[].class);
+    }
+
+    private <T> Stream<T> stream(String jpql, Class<T> type) {
+        return entityManager.createQuery(jpql, type)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    // Connector/J ignores a positive fetch size unless cursor fetch is enabled for the whole connection,
+    // which would give every query a server-side cursor. Integer.MIN_VALUE streams this statement alone,
+    // row by row. Other drivers reject it and take a plain fetch size.
+    private int streamFetchSize() {
+        Integer fetchSize = streamFetchSize;
+        if (fetchSize == null) {
+            Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect();
+            fetchSize = dialect instanceof MySQLDialect ? Integer.MIN_VALUE : STREAM_FETCH_SIZE;
+            streamFetchSize = fetchSize;
+        }
+        return fetchSize;
+    }
+
+    @Override
+    @Transactional
+    public int patch(long id, long version, ProductPatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Product> update = cb.createCriteriaUpdate(Product.class);
+        Root<Product> product = update.from(Product.class);
+        if (patch.name() != null) {
+            update.set(product.<String>get("name"), patch.name());
+        }
+        if (patch.category() != null) {
+            update.set(product.<String>get("category"), patch.category());
+        }
+        if (patch.price() != null) {
+            update.set(product.<Double>get("price"), patch.price());
+        }
+        if (patch.description() != null) {
+            update.set(product.<String>get("description"), patch.description());
+        }
+        update.set(product.<Long>get("version"), cb.sum(product.<Long>get("version"), 1L));
+        update.where(cb.equal(product.get("id"), id), cb.equal(product.get("version"), version));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<Product> findMatching(Specification<Product> where, Sort sort, Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> product = query.from(Product.class);
+        if (where != null) {
+            query.where(where.toPredicate(product, query, cb));
+        }
+        query.orderBy(QueryUtils.toOrders(sort, product, cb));
+        TypedQuery<Product> typed = entityManager.createQuery(query);
+        if (limit.isLimited()) {
+            typed.setMaxResults(limit.max());
+        }
+        return typed.getResultList();
+    }
+
+    @Override
+    public List<Map<String, Object>> findFields(Set<ProductField> fields, Specification<Product> where, Sort sort, Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> product = query.from(Product.class);
+        List<Selection<?>> columns = new ArrayList<>(fields.size());
+        for (ProductField field : fields) {
+            columns.add(product.get(field.property()).alias(field.property()));
+        }
+        query.multiselect(columns);
+        if (where != null) {
+            query.where(where.toPredicate(product, query, cb));
+        }
+        query.orderBy(QueryUtils.toOrders(sort, product, cb));
+        TypedQuery<Tuple> typed = entityManager.createQuery(query);
+        if (limit.isLimited()) {
+            typed.setMaxResults(limit.max());
+        }
+        List<Tuple> tuples = typed.getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>(fields.size() * 2);
+            for (ProductField field : fields) {
+                row.put(field.property(), tuple.get(field.property()));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,62 @@
+package com.securityexample.securityex.repository;
+
+import com.securityexample.securityex.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+/**
+ * Row filters for the criteria queries of {@link ProductRepositoryCustom}, mirroring the derived and
+ * {@code @Query} methods of {@link ProductRepository}.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> idIn(Collection<Long> ids) {
+        return (product, query, cb) -> product.get("id").in(ids);
+    }
+
+    public static Specification<Product> idGreaterThan(long id) {
+        return (product, query, cb) -> cb.greaterThan(product.get("id"), id);
+    }
+
+    public static Specification<Product> nameEquals(String name) {
+        return (product, query, cb) -> cb.equal(product.get("name"), name);
+    }
+
+    public static Specification<Product> categoryEquals(String category) {
+        return (product, query, cb) -> cb.equal(product.get("category"), category);
+    }
+
+    public static Specification<Product> categoryIn(Collection<String> categories) {
+        return (product, query, cb) -> product.get("category").in(categories);
+    }
+
+    public static Specification<Product> priceBetween(double min, double max) {
+        return (product, query, cb) -> cb.between(product.get("price"), min, max);
+    }
+
+    public static Specification<Product> priceAtLeast(double min) {
+        return (product, query, cb) -> cb.greaterThanOrEqualTo(product.get("price"), min);
+    }
+
+    public static Specification<Product> priceAtMost(double max) {
+        return (product, query, cb) -> cb.lessThanOrEqualTo(product.get("price"), max);
+    }
+
+    /** Rows after {@code (price, id)} in {@code ORDER BY price ASC, id ASC}. */
+    public static Specification<Product> priceAscAfter(double price, long id) {
+        return (product, query, cb) -> cb.or(
+                cb.greaterThan(product.get("price"), price),
+                cb.and(cb.equal(product.get("price"), price), cb.greaterThan(product.get("id"), id)));
+    }
+
+    /** Rows after {@code (price, id)} in {@code ORDER BY price DESC, id DESC}. */
+    public static Specification<Product> priceDescAfter(double price, long id) {
+        return (product, query, cb) -> cb.or(
+                cb.lessThan(product.get("price"), price),
+                cb.and(cb.equal(product.get("price"), price), cb.lessThan(product.get("id"), id)));
+    }
+}
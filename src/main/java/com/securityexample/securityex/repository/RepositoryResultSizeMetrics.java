@@ -0,0 +1,68 @@
+package com.securityexample.securityex.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many rows each {@link ProductRepository} method returns, as the
+ * {@code products.repository.result.size} summary tagged with the method name. Timings come from
+ * Spring Data's own {@code spring.data.repository.invocations}; this adds the sizes it does not see.
+ * Summaries are created once per method, so recording a result allocates nothing.
+ */
+@Component
+public class RepositoryResultSizeMetrics implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public RepositoryResultSizeMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof ProductRepository)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        proxyFactory.setInterfaces(ProductRepository.class);
+        proxyFactory.addAdvice((MethodInterceptor) this::invoke);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        long size;
+        if (result instanceof Collection<?> collection) {
+            size = collection.size();
+        } else if (result instanceof Slice<?> slice) {
+            size = slice.getNumberOfElements();
+        } else {
+            return result;
+        }
+        summaries.computeIfAbsent(invocation.getMethod(), this::summary).record(size);
+        return result;
+    }
+
+    private DistributionSummary summary(Method method) {
+        return DistributionSummary.builder("products.repository.result.size")
+                .description("Rows returned by a product repository method")
+                .baseUnit("rows")
+                .tag("method", method.getName())
+                .publishPercentileHistogram()
+                .register(meterRegistry.getObject());
+    }
+}
@@ -0,0 +1,41 @@
+package com.securityexample.securityex.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override of the read/write split done by {@link ReadWriteRoutingDataSource}. Reads run
+ * through {@link #onPrimary} see every write that has committed, at the cost of not being offloaded to
+ * a replica. Without replicas configured there is a single database and the override has no effect.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    /** Runs {@code action} with every connection it opens taken from the primary. */
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = forcePrimary(true);
+        try {
+            return action.get();
+        } finally {
+            forcePrimary(previous);
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+
+    // Returns the previous setting so callers can restore it
+    static boolean forcePrimary(boolean primary) {
+        boolean previous = isPrimaryForced();
+        if (primary) {
+            PRIMARY.set(Boolean.TRUE);
+        } else {
+            PRIMARY.remove();
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,29 @@
+package com.securityexample.securityex.routing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas of the {@code spring.datasource} database, bound from {@code products.datasource.*}.
+ *
+ * @param replicas       the replicas read-only transactions are spread over
+ * @param selection      how a replica is picked for each transaction
+ * @param readYourWrites how long after a write a client's reads stay on the primary; unset disables it
+ */
+@ConfigurationProperties("products.datasource")
+public record ReadReplicaProperties(List<Replica> replicas,
+                                    @DefaultValue("round-robin") ReplicaSelection selection,
+                                    Duration readYourWrites) {
+
+    /**
+     * @param connectionTimeout kept short so that reads fall back to the primary quickly when the
+     *                          replica is down, instead of waiting out the usual pool timeout
+     */
+    public record Replica(String url, String username, String password,
+                          @DefaultValue("10") int maximumPoolSize,
+                          @DefaultValue("1s") Duration connectionTimeout) {
+    }
+}
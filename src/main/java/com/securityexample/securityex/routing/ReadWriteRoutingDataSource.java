@@ -0,0 +1,134 @@
+package com.securityexample.securityex.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+/**
+ * Sends connections for read-only transactions to a replica and everything else to the primary.
+ * The decision is made when the connection is opened, so this data source must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction
+ * manager asks for a connection before the transaction is marked read-only, and the proxy defers the
+ * real request to the first statement. A replica that cannot hand out a connection in time is
+ * skipped for that transaction, which then reads from the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements MeterBinder, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final ReplicaSelection selection;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder[] replicaConnections;
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReplicaSelection selection) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.replicaConnections = new LongAdder[replicas.size()];
+        for (int i = 0; i < replicaConnections.length; i++) {
+            replicaConnections[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readsFromReplica()) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        int index = selectReplica();
+        HikariDataSource replica = replicas.get(index);
+        try {
+            Connection connection = replica.getConnection();
+            replicaConnections[index].increment();
+            return connection;
+        } catch (SQLException ex) {
+            logger.warn("Replica {} unavailable, reading from the primary: {}", replica.getPoolName(), ex.getMessage());
+            fallbacks.increment();
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return readsFromReplica()
+                ? replicas.get(selectReplica()).getConnection(username, password)
+                : primary.getConnection(username, password);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindConnections(registry, "primary", primaryConnections);
+        for (int i = 0; i < replicas.size(); i++) {
+            bindConnections(registry, replicas.get(i).getPoolName(), replicaConnections[i]);
+            // The replica pools are not beans, so the hikaricp.* pool metrics are not bound for them otherwise
+            replicas.get(i).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        FunctionCounter.builder("products.db.replica.fallbacks", fallbacks, LongAdder::sum)
+                .description("Read-only transactions moved to the primary because a replica was unavailable")
+                .register(registry);
+    }
+
+    private static void bindConnections(MeterRegistry registry, String target, LongAdder connections) {
+        FunctionCounter.builder("products.db.routed.connections", connections, LongAdder::sum)
+                .description("Connections handed out by the read/write router").tag("target", target)
+                .register(registry);
+    }
+
+    /** Closes the replica pools; the primary is managed by whoever created it. */
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    private static boolean readsFromReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !DataSourceRouting.isPrimaryForced();
+    }
+
+    int selectReplica() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (selection == ReplicaSelection.ROUND_ROBIN) {
+            return start;
+        }
+        int selected = start;
+        int lowestLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            int load = load(replicas.get(index));
+            if (load < lowestLoad) {
+                selected = index;
+                lowestLoad = load;
+            }
+        }
+        return selected;
+    }
+
+    private static int load(HikariDataSource replica) {
+        HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+        // The pool is created on the first connection request
+        return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+    }
+}
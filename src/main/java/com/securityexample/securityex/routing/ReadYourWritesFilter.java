@@ -0,0 +1,83 @@
+package com.securityexample.securityex.routing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary for a while after it writes, so it does not miss its own
+ * change while the replicas catch up. Writes set a cookie holding the end of the window; reads that
+ * carry an unexpired one run with {@link DataSourceRouting#onPrimary} in effect. The cookie is
+ * client-side state, so the window holds whichever instance serves the next request. A value further
+ * out than one window is ignored, so a crafted cookie cannot pin a client to the primary.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "products-primary-until";
+
+    private static final String PRODUCTS_PATH = "/api/v1/products";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(PRODUCTS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        if (!read) {
+            // Set before the chain runs, while the response is certainly not committed
+            ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, Long.toString(now + window.toMillis()))
+                    .path(PRODUCTS_PATH).maxAge(window).httpOnly(true).sameSite("Lax").build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!withinWindow(request, now)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean previous = DataSourceRouting.forcePrimary(true);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            DataSourceRouting.forcePrimary(previous);
+        }
+    }
+
+    private boolean withinWindow(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    long until = Long.parseLong(cookie.getValue());
+                    return until > now && until <= now + window.toMillis();
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
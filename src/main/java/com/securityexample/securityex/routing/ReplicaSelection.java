@@ -0,0 +1,9 @@
+package com.securityexample.securityex.routing;
+
+/** How {@link ReadWriteRoutingDataSource} picks the replica a read-only transaction runs on. */
+public enum ReplicaSelection {
+    /** Each replica in turn. */
+    ROUND_ROBIN,
+    /** The replica with the fewest connections in use or awaited; ties go round-robin. */
+    LEAST_LOADED
+}
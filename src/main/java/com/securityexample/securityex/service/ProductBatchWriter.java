@@ -0,0 +1,85 @@
+package com.securityexample.securityex.service;
+
+import com.securityexample.securityex.changes.ProductChangeLog;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes one batch of a bulk request in its own transaction. Statements are flushed together at
+ * the end of the batch, so Hibernate sends them as a single JDBC batch of up to
+ * {@code hibernate.jdbc.batch_size} rows, and the persistence context is cleared afterwards to
+ * keep memory flat across batches. Each batch appends its change records in the same transaction.
+ */
+@Component
+public class ProductBatchWriter {
+
+    private final ProductRepository repository;
+    private final EntityManager entityManager;
+    private final ProductChangeLog changeLog;
+    private final int batchSize;
+
+    public ProductBatchWriter(ProductRepository repository, EntityManager entityManager, ProductChangeLog changeLog,
+                              @Value("${products.bulk.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.changeLog = changeLog;
+        this.batchSize = batchSize;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /** Inserts new products and returns them, in order, with their generated ids. */
+    @Transactional
+    public List<Product> insert(List<Product> products) {
+        products.forEach(entityManager::persist);
+        entityManager.flush();
+        changeLog.recordCreated(products);
+        entityManager.clear();
+        return products;
+    }
+
+    /** Copies the fields of each product onto its stored row. Returns the updated rows by id; missing ids are absent. */
+    @Transactional
+    public Map<Long, Product> update(List<Product> products) {
+        Map<Long, Product> existing = new HashMap<>();
+        for (Product product : repository.findAllById(products.stream().map(Product::getId).toList())) {
+            existing.put(product.getId(), product);
+        }
+        for (Product product : products) {
+            Product existingProduct = existing.get(product.getId());
+            if (existingProduct != null) {
+                existingProduct.setName(product.getName());
+                existingProduct.setCategory(product.getCategory());
+                existingProduct.setPrice(product.getPrice());
+                existingProduct.setDescription(product.getDescription());
+            }
+        }
+        entityManager.flush();
+        changeLog.recordUpdated(existing.values());
+        entityManager.clear();
+        return existing;
+    }
+
+    /** Deletes the given ids with a single statement and returns the ids that existed. */
+    @Transactional
+    public Set<Long> delete(List<Long> ids) {
+        Set<Long> existing = new HashSet<>(repository.findExistingIds(ids));
+        if (!existing.isEmpty()) {
+            repository.deleteAllByIdInBatch(existing);
+            changeLog.recordDeleted(existing);
+        }
+        return existing;
+    }
+}
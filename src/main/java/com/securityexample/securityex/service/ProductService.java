@@ -1,17 +1,59 @@
 package com.securityexample.securityex.service;
 
+import com.securityexample.securityex.bulk.BulkResult;
+import com.securityexample.securityex.bulk.MultiGetResult;
+import com.securityexample.securityex.cache.ProductCacheStats;
 import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.filter.ProductFilter;
+import com.securityexample.securityex.filter.ProductSort;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
+import com.securityexample.securityex.pagination.SearchPage;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface ProductService {
     Product getProductById(Long id);
+    MultiGetResult getProductsByIds(List<Long> ids);
     List<Product> getProductByName(String name);
+    SearchPage<Product> searchProducts(String query, int page, int size);
+    List<String> suggestSearchTerms(String prefix, int limit);
     List<Product> getProductsByCategory(String category);
+    List<Product> getProductsInAnyCategory(List<String> categories);
+    long[] getProductIdsByCategory(String category);
+    Map<String, Long> getCategoryCounts();
     List<Product> findAllProductsByPriceAsc();
     List<Product> findAllProductsByPriceDesc();
+    List<Product> getProductsByPriceRange(double min, double max, int limit);
     List<Product> getAllProducts();
+    ProductCacheStats getCacheStats();
+    CursorPage<Product> getProductsPage(String cursor, int limit);
+    CursorPage<Product> getProductsPageByPriceAsc(String cursor, int limit);
+    CursorPage<Product> getProductsPageByPriceDesc(String cursor, int limit);
+    CursorPage<Product> filterProducts(ProductFilter filter, ProductSort sort, String cursor, int limit);
+    List<Map<String, Object>> getAllProducts(Set<ProductField> fields);
+    CursorPage<Map<String, Object>> getProductsPage(String cursor, int limit, Set<ProductField> fields);
+    List<Map<String, Object>> getProductByName(String name, Set<ProductField> fields);
+    List<Map<String, Object>> getProductsByCategory(String category, Set<ProductField> fields);
+    List<Map<String, Object>> getProductsInAnyCategory(List<String> categories, Set<ProductField> fields);
+    List<Map<String, Object>> findAllProductsByPriceAsc(Set<ProductField> fields);
+    List<Map<String, Object>> findAllProductsByPriceDesc(Set<ProductField> fields);
+    List<Map<String, Object>> getProductsByPriceRange(double min, double max, int limit, Set<ProductField> fields);
+    CursorPage<Map<String, Object>> getProductsPageByPriceAsc(String cursor, int limit, Set<ProductField> fields);
+    CursorPage<Map<String, Object>> getProductsPageByPriceDesc(String cursor, int limit, Set<ProductField> fields);
+    CursorPage<Map<String, Object>> filterProducts(ProductFilter filter, ProductSort sort, String cursor, int limit,
+                                                   Set<ProductField> fields);
+    long exportProducts(Consumer<Product> sink);
     Product saveProduct(Product product);
     void deleteProduct(Long id);
     Product updateProduct(Long id, Product product);
+    long patchProduct(Long id, ProductPatch patch);
+    BulkResult createProducts(List<Product> products);
+    BulkResult updateProducts(List<Product> products);
+    BulkResult deleteProducts(List<Long> ids);
+    void rebuildIndexes();
 }
@@ -1,22 +1,109 @@
 package com.securityexample.securityex.service;
 
+import com.securityexample.securityex.bulk.BulkItemResult;
+import com.securityexample.securityex.bulk.BulkItemStatus;
+import com.securityexample.securityex.bulk.BulkResult;
+import com.securityexample.securityex.bulk.MultiGetResult;
+import com.securityexample.securityex.cache.CatalogVersions;
+import com.securityexample.securityex.changes.ProductChangeLog;
+import com.securityexample.securityex.cache.ProductCache;
+import com.securityexample.securityex.cache.ProductCacheStats;
+import com.securityexample.securityex.coalesce.ProductIdLoader;
+import com.securityexample.securityex.coalesce.ReadCoalescer;
 import com.securityexample.securityex.entity.Product;
 import com.securityexample.securityex.exception.ProductNotFoundException;
+import com.securityexample.securityex.exception.ProductVersionConflictException;
+import com.securityexample.securityex.filter.ProductFilter;
+import com.securityexample.securityex.filter.ProductSort;
+import com.securityexample.securityex.index.CategoryIndex;
+import com.securityexample.securityex.index.CategoryStats;
+import com.securityexample.securityex.index.CategoryStatsIndex;
+import com.securityexample.securityex.index.PriceIndex;
+import com.securityexample.securityex.index.SearchIndex;
+import com.securityexample.securityex.json.ProductJsonCache;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.pagination.ProductCursor;
+import com.securityexample.securityex.pagination.SearchPage;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
 import com.securityexample.securityex.repository.ProductRepository;
+import com.securityexample.securityex.repository.ProductSpecifications;
+import com.securityexample.securityex.routing.DataSourceRouting;
+import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class ProductServiceImpl implements ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int ID_BATCH_SIZE = 1000;
+
+    private static final Sort BY_ID = Sort.by("id");
+    private static final Sort BY_PRICE_ASC = Sort.by("price", "id");
+    private static final Sort BY_PRICE_DESC = Sort.by(Sort.Direction.DESC, "price", "id");
+
     private final ProductRepository repository;
+    private final EntityManager entityManager;
+    private final ProductCache productCache;
+    private final PriceIndex priceIndex;
+    private final CategoryIndex categoryIndex;
+    private final SearchIndex searchIndex;
+    private final CategoryStatsIndex categoryStats;
+    private final ProductBatchWriter batchWriter;
+    private final CatalogVersions catalogVersions;
+    private final ProductJsonCache jsonCache;
+    private final ProductChangeLog changeLog;
+    private final ReadCoalescer coalescer;
+    private final ProductIdLoader idLoader;
+    private final TransactionOperations transactions;
+    // Set by a statistics check that found a mismatch, so the next one can confirm it
+    private volatile boolean categoryStatsMismatched;
 
-    public ProductServiceImpl(ProductRepository repository) {
+    public ProductServiceImpl(ProductRepository repository, EntityManager entityManager, ProductCache productCache,
+                              PriceIndex priceIndex, CategoryIndex categoryIndex, SearchIndex searchIndex,
+                              CategoryStatsIndex categoryStats, ProductBatchWriter batchWriter, CatalogVersions catalogVersions,
+                              ProductJsonCache jsonCache, ProductChangeLog changeLog, ReadCoalescer coalescer,
+                              ProductIdLoader idLoader, TransactionOperations transactions) {
         this.repository = repository;
+        this.entityManager = entityManager;
+        this.productCache = productCache;
+        this.priceIndex = priceIndex;
+        this.categoryIndex = categoryIndex;
+        this.searchIndex = searchIndex;
+        this.categoryStats = categoryStats;
+        this.batchWriter = batchWriter;
+        this.catalogVersions = catalogVersions;
+        this.jsonCache = jsonCache;
+        this.changeLog = changeLog;
+        this.coalescer = coalescer;
+        this.idLoader = idLoader;
+        this.transactions = transactions;
     }
 
     public Product getProductById(Long id) {
@@ -24,45 +111,237 @@ public class ProductServiceImpl implements ProductService {
             throw new IllegalArgumentException("Invalid product ID: " + id);
         }
         logger.debug("Fetching product with id {}", id);
-        return repository.findById(id).orElseThrow(() -> new ProductNotFoundException("Product with id " + id + " was not found"));
+        // Loaded from the primary: a lagging replica would keep a stale product cached until it expires
+        return productCache.get(id, idLoader::findById)
+                .orElseThrow(() -> new ProductNotFoundException("Product with id " + id + " was not found"));
     }
 
+    /**
+     * Products with the given ids, in request order and without repeats, and the ids that do not exist.
+     * Cached products are used as they are; the rest are loaded with one {@code IN} query.
+     */
+    public MultiGetResult getProductsByIds(List<Long> ids) {
+        logger.debug("Fetching {} products by id", ids.size());
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Too many product IDs: " + ids.size() + " (at most " + MAX_PAGE_SIZE + ")");
+        }
+        for (Long id : ids) {
+            if (id == null || id <= 0) {
+                throw new IllegalArgumentException("Invalid product ID: " + id);
+            }
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, Optional<Product>> entries = productCache.getAll(requested, idLoader::findAllById);
+        List<Product> products = new ArrayList<>(requested.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            entries.get(id).ifPresentOrElse(products::add, () -> missing.add(id));
+        }
+        return new MultiGetResult(products, missing);
+    }
+
+    // Listings hot enough to be requested many times at once go through the coalescer, which opens the
+    // read-only transaction itself once it knows the caller is the one that has to query.
+
     public List<Product> getProductByName(String name) {
         logger.debug("Fetching product with name {}", name);
-        List<Product> products = repository.findProductByName(name);
-        if (products.isEmpty()) {
-            throw new ProductNotFoundException("No products found with name " + name);
+        return coalescer.execute("name", name, catalogVersions.catalogTag(), () -> {
+            List<Product> products = repository.findProductByName(name);
+            if (products.isEmpty()) {
+                throw new ProductNotFoundException("No products found with name " + name);
+            }
+            return products;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public SearchPage<Product> searchProducts(String query, int page, int size) {
+        logger.debug("Searching products for '{}' (page {}, size {})", query, page, size);
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
         }
-        return products;
+        if (page < 0) {
+            throw new IllegalArgumentException("Invalid page: " + page);
+        }
+        checkPageLimit(size);
+        if (!searchIndex.isReady()) {
+            Page<Product> products = repository.findByText(query.strip(), PageRequest.of(page, size));
+            return new SearchPage<>(products.getContent(), products.getTotalElements(), page, size);
+        }
+        SearchIndex.Hits hits = searchIndex.search(query, page * size, size);
+        return new SearchPage<>(findAllInOrder(hits.ids()), hits.total(), page, size);
+    }
+
+    public List<String> suggestSearchTerms(String prefix, int limit) {
+        logger.debug("Suggesting up to {} search terms for prefix '{}'", limit, prefix);
+        checkPageLimit(limit);
+        return searchIndex.suggest(prefix, limit);
     }
 
     public List<Product> getProductsByCategory(String category) {
         logger.debug("Fetching products with category {}", category);
-        List<Product> products = repository.findProductByCategory(category);
-        if (products.isEmpty()) {
-            throw new ProductNotFoundException("No products found in category " + category);
+        return coalescer.execute("category", category, catalogVersions.categoryTag(category), () -> {
+            List<Product> products = categoryIndex.isReady()
+                    ? findAllInOrder(categoryIndex.ids(category))
+                    : repository.findProductByCategory(category);
+            if (products.isEmpty()) {
+                throw new ProductNotFoundException("No products found in category " + category);
+            }
+            return products;
+        });
+    }
+
+    public List<Product> getProductsInAnyCategory(List<String> categories) {
+        logger.debug("Fetching products in any of the categories {}", categories);
+        return coalescer.execute("any-category", List.copyOf(categories), catalogVersions.catalogTag(), () -> {
+            List<Product> products = categoryIndex.isReady()
+                    ? findAllInOrder(categoryIndex.idsInAny(categories))
+                    : repository.findByCategoryInOrderByIdAsc(categories);
+            if (products.isEmpty()) {
+                throw new ProductNotFoundException("No products found in categories " + categories);
+            }
+            return products;
+        });
+    }
+
+    public long[] getProductIdsByCategory(String category) {
+        logger.debug("Fetching product ids with category {}", category);
+        return coalescer.execute("category-ids", category, catalogVersions.categoryTag(category), () -> {
+            long[] ids = categoryIndex.isReady()
+                    ? categoryIndex.ids(category)
+                    : repository.findIdsByCategory(category).stream().mapToLong(Long::longValue).toArray();
+            if (ids.length == 0) {
+                throw new ProductNotFoundException("No products found in category " + category);
+            }
+            return ids;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> getCategoryCounts() {
+        logger.debug("Fetching product counts per category");
+        if (categoryIndex.isReady()) {
+            return categoryIndex.counts();
         }
-        return products;
+        Map<String, Long> counts = new TreeMap<>();
+        for (Object[] row : repository.countByCategory()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Price statistics per category, with histograms over {@code bounds} (all configured bounds when
+     * {@code null}). Served from the in-memory aggregates, or computed with a full scan of the primary until
+     * they are loaded, so the answer never goes back behind what the aggregates will show.
+     */
+    public Map<String, CategoryStats> getCategoryStats(double[] bounds) {
+        logger.debug("Fetching price statistics per category");
+        if (categoryStats.isReady()) {
+            return categoryStats.stats(bounds);
+        }
+        CategoryStatsIndex scanned = categoryStats.emptyCopy();
+        scanned.rebuild(loader -> scanPrimary(repository::streamIdCategoryAndPrice,
+                row -> loader.add((Long) row[0], (String) row[1], (Double) row[2])));
+        return scanned.stats(bounds);
+    }
+
+    /**
+     * Compares the in-memory category statistics with a {@code GROUP BY} over the table and rebuilds
+     * them if they differ. Returns whether they were found to have drifted. Reads the primary, since
+     * a lagging replica would look like drift. A comparison is skipped when writes happened while the
+     * query ran. A write that has committed but is not applied in memory yet also shows as a mismatch,
+     * so drift is only reported when two checks in a row find one.
+     */
+    public boolean reconcileCategoryStats() {
+        if (!categoryStats.isReady()) {
+            return false;
+        }
+        long writes = categoryStats.writeCount();
+        List<Object[]> rows = DataSourceRouting.onPrimary(repository::aggregateByCategory);
+        Map<String, CategoryStatsIndex.Totals> totals = categoryStats.totals();
+        if (categoryStats.writeCount() != writes) {
+            logger.debug("Skipped category statistics check, the catalog changed meanwhile");
+            return false;
+        }
+        if (matches(rows, totals)) {
+            categoryStatsMismatched = false;
+            return false;
+        }
+        if (!categoryStatsMismatched) {
+            categoryStatsMismatched = true;
+            logger.debug("Category statistics differ from the database, checking again next time");
+            return false;
+        }
+        categoryStatsMismatched = false;
+        logger.warn("Category statistics drifted from the database, rebuilding them");
+        rebuildCategoryStats();
+        // Tags handed out with the drifted numbers must not be revalidated
+        catalogVersions.invalidateAll();
+        return true;
+    }
+
+    // Sums are compared with a tolerance, since they are accumulated in a different order
+    private static boolean matches(List<Object[]> rows, Map<String, CategoryStatsIndex.Totals> totals) {
+        if (rows.size() != totals.size()) {
+            return false;
+        }
+        for (Object[] row : rows) {
+            CategoryStatsIndex.Totals expected = new CategoryStatsIndex.Totals(
+                    (Long) row[1], (Double) row[2], (Double) row[3], (Double) row[4]);
+            CategoryStatsIndex.Totals actual = totals.get((String) row[0]);
+            if (actual == null
+                    || actual.count() != expected.count()
+                    || Double.compare(actual.min(), expected.min()) != 0
+                    || Double.compare(actual.max(), expected.max()) != 0
+                    || Math.abs(actual.sum() - expected.sum()) > 1e-9 * Math.max(1, Math.abs(expected.sum()))) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    @Transactional(readOnly = true)
     public List<Product> findAllProductsByPriceAsc() {
         logger.debug("Fetching products sorted by price ascending");
-        List<Product> products = repository.findAllProductsByPriceAsc();
+        List<Product> products = priceIndex.isReady()
+                ? findAllInOrder(priceIndex.ascending(Integer.MAX_VALUE))
+                : repository.findAllProductsByPriceAsc();
         if (products.isEmpty()) {
             throw new ProductNotFoundException("No products found ordered by price ascending");
         }
         return products;
     }
 
+    @Transactional(readOnly = true)
     public List<Product> findAllProductsByPriceDesc() {
         logger.debug("Fetching products sorted by price descending");
-        List<Product> products = repository.findAllByOrderByPriceDesc();
+        List<Product> products = priceIndex.isReady()
+                ? findAllInOrder(priceIndex.descending(Integer.MAX_VALUE))
+                : repository.findAllByOrderByPriceDesc();
         if (products.isEmpty()) {
             throw new ProductNotFoundException("No products found ordered by price descending");
         }
         return products;
     }
 
+    @Transactional(readOnly = true)
+    public List<Product> getProductsByPriceRange(double min, double max, int limit) {
+        logger.debug("Fetching up to {} products priced between {} and {}", limit, min, max);
+        if (min > max) {
+            throw new IllegalArgumentException("Invalid price range: min " + min + " is greater than max " + max);
+        }
+        checkPageLimit(limit);
+        List<Product> products = priceIndex.isReady()
+                ? findAllInOrder(priceIndex.range(min, max, limit))
+                : repository.findByPriceBetweenOrderByPriceAscIdAsc(min, max, Limit.of(limit));
+        if (products.isEmpty()) {
+            throw new ProductNotFoundException("No products found with price between " + min + " and " + max);
+        }
+        return products;
+    }
+
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
         logger.debug("Fetching all products");
         List<Product> products = repository.findAll();
@@ -72,27 +351,602 @@ public class ProductServiceImpl implements ProductService {
         return products;
     }
 
+    public ProductCacheStats getCacheStats() {
+        return productCache.stats();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getProductsPage(String cursor, int limit) {
+        logger.debug("Fetching products page after cursor {} with limit {}", cursor, limit);
+        long afterId = cursor == null ? 0 : ProductCursor.decode(cursor).id();
+        return toPage(repository.findByIdGreaterThanOrderByIdAsc(afterId, pageLimit(limit)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getProductsPageByPriceAsc(String cursor, int limit) {
+        logger.debug("Fetching products page by price ascending after cursor {} with limit {}", cursor, limit);
+        Limit pageLimit = pageLimit(limit);
+        ProductCursor after = cursor == null ? null : ProductCursor.decode(cursor);
+        List<Product> products;
+        if (priceIndex.isReady()) {
+            products = findAllInOrder(after == null
+                    ? priceIndex.ascending(pageLimit.max())
+                    : priceIndex.ascendingAfter(after.price(), after.id(), pageLimit.max()));
+        } else if (after == null) {
+            products = repository.findAllByOrderByPriceAscIdAsc(pageLimit);
+        } else {
+            products = repository.findPriceAscAfter(after.price(), after.id(), pageLimit);
+        }
+        return toPage(products, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> getProductsPageByPriceDesc(String cursor, int limit) {
+        logger.debug("Fetching products page by price descending after cursor {} with limit {}", cursor, limit);
+        Limit pageLimit = pageLimit(limit);
+        ProductCursor after = cursor == null ? null : ProductCursor.decode(cursor);
+        List<Product> products;
+        if (priceIndex.isReady()) {
+            products = findAllInOrder(after == null
+                    ? priceIndex.descending(pageLimit.max())
+                    : priceIndex.descendingBefore(after.price(), after.id(), pageLimit.max()));
+        } else if (after == null) {
+            products = repository.findAllByOrderByPriceDescIdDesc(pageLimit);
+        } else {
+            products = repository.findPriceDescAfter(after.price(), after.id(), pageLimit);
+        }
+        return toPage(products, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Product> filterProducts(ProductFilter filter, ProductSort sort, String cursor, int limit) {
+        logger.debug("Filtering products by {} ordered by {} after cursor {} with limit {}", filter, sort, cursor, limit);
+        Limit pageLimit = pageLimit(limit);
+        return toPage(repository.findMatching(filterAfter(filter, sort, cursor), sort.sort(), pageLimit), limit);
+    }
+
+    // The filter and the keyset seek past the cursor, in a single WHERE clause
+    private static Specification<Product> filterAfter(ProductFilter filter, ProductSort sort, String cursor) {
+        Specification<Product> where = filter.specification();
+        return cursor == null ? where : where.and(sort.after(ProductCursor.decode(cursor)));
+    }
+
+    // Fetches one row more than requested so the presence of a next page is known without a count query.
+    private static Limit pageLimit(int limit) {
+        checkPageLimit(limit);
+        return Limit.of(limit + 1);
+    }
+
+    private static void checkPageLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid page limit: " + limit + " (must be between 1 and " + MAX_PAGE_SIZE + ")");
+        }
+    }
+
+    // Loads the rows for ids handed out by an index with batched IN queries, keeping the index order.
+    // Ids deleted since the index was read are skipped.
+    private List<Product> findAllInOrder(long[] ids) {
+        Map<Long, Product> productsById = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+            List<Long> batch = new ArrayList<>(Math.min(ID_BATCH_SIZE, ids.length - from));
+            for (int i = from; i < Math.min(from + ID_BATCH_SIZE, ids.length); i++) {
+                batch.add(ids[i]);
+            }
+            for (Product product : repository.findAllById(batch)) {
+                productsById.put(product.getId(), product);
+            }
+        }
+        List<Product> products = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product product = productsById.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    private static CursorPage<Product> toPage(List<Product> products, int limit) {
+        if (products.size() <= limit) {
+            return new CursorPage<>(products, null);
+        }
+        List<Product> items = products.subList(0, limit);
+        return new CursorPage<>(items, ProductCursor.of(items.get(limit - 1)).encode());
+    }
+
+    // Projections: the same listings narrowed to the requested columns, read as plain rows
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllProducts(Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of all products", fields);
+        return nonEmpty(repository.findFields(fields, null, BY_ID, Limit.unlimited()), "No products found");
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> getProductsPage(String cursor, int limit, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products page after cursor {} with limit {}", fields, cursor, limit);
+        long afterId = cursor == null ? 0 : ProductCursor.decode(cursor).id();
+        List<Map<String, Object>> rows = repository.findFields(fields, ProductSpecifications.idGreaterThan(afterId),
+                BY_ID, pageLimit(limit));
+        return toFieldPage(rows, limit, fields);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getProductByName(String name, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products with name {}", fields, name);
+        return nonEmpty(repository.findFields(fields, ProductSpecifications.nameEquals(name), BY_ID, Limit.unlimited()),
+                "No products found with name " + name);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getProductsByCategory(String category, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products with category {}", fields, category);
+        List<Map<String, Object>> rows = categoryIndex.isReady()
+                ? findFieldsInOrder(categoryIndex.ids(category), fields)
+                : repository.findFields(fields, ProductSpecifications.categoryEquals(category), BY_ID, Limit.unlimited());
+        return nonEmpty(rows, "No products found in category " + category);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getProductsInAnyCategory(List<String> categories, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products in any of the categories {}", fields, categories);
+        List<Map<String, Object>> rows = categoryIndex.isReady()
+                ? findFieldsInOrder(categoryIndex.idsInAny(categories), fields)
+                : repository.findFields(fields, ProductSpecifications.categoryIn(categories), BY_ID, Limit.unlimited());
+        return nonEmpty(rows, "No products found in categories " + categories);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAllProductsByPriceAsc(Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products sorted by price ascending", fields);
+        List<Map<String, Object>> rows = priceIndex.isReady()
+                ? findFieldsInOrder(priceIndex.ascending(Integer.MAX_VALUE), fields)
+                : repository.findFields(fields, null, BY_PRICE_ASC, Limit.unlimited());
+        return nonEmpty(rows, "No products found ordered by price ascending");
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAllProductsByPriceDesc(Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products sorted by price descending", fields);
+        List<Map<String, Object>> rows = priceIndex.isReady()
+                ? findFieldsInOrder(priceIndex.descending(Integer.MAX_VALUE), fields)
+                : repository.findFields(fields, null, BY_PRICE_DESC, Limit.unlimited());
+        return nonEmpty(rows, "No products found ordered by price descending");
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getProductsByPriceRange(double min, double max, int limit, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of up to {} products priced between {} and {}", fields, limit, min, max);
+        if (min > max) {
+            throw new IllegalArgumentException("Invalid price range: min " + min + " is greater than max " + max);
+        }
+        checkPageLimit(limit);
+        List<Map<String, Object>> rows = priceIndex.isReady()
+                ? findFieldsInOrder(priceIndex.range(min, max, limit), fields)
+                : repository.findFields(fields, ProductSpecifications.priceBetween(min, max), BY_PRICE_ASC, Limit.of(limit));
+        return nonEmpty(rows, "No products found with price between " + min + " and " + max);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> getProductsPageByPriceAsc(String cursor, int limit, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products page by price ascending after cursor {} with limit {}", fields, cursor, limit);
+        Limit pageLimit = pageLimit(limit);
+        ProductCursor after = cursor == null ? null : ProductCursor.decode(cursor);
+        // The cursor needs the price of the last row even when the client did not ask for it
+        Set<ProductField> selected = withPrice(fields);
+        List<Map<String, Object>> rows;
+        if (priceIndex.isReady()) {
+            rows = findFieldsInOrder(after == null
+                    ? priceIndex.ascending(pageLimit.max())
+                    : priceIndex.ascendingAfter(after.price(), after.id(), pageLimit.max()), selected);
+        } else {
+            rows = repository.findFields(selected, after == null ? null : ProductSpecifications.priceAscAfter(after.price(), after.id()),
+                    BY_PRICE_ASC, pageLimit);
+        }
+        return toFieldPage(rows, limit, fields);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> getProductsPageByPriceDesc(String cursor, int limit, Set<ProductField> fields) {
+        logger.debug("Fetching fields {} of products page by price descending after cursor {} with limit {}", fields, cursor, limit);
+        Limit pageLimit = pageLimit(limit);
+        ProductCursor after = cursor == null ? null : ProductCursor.decode(cursor);
+        Set<ProductField> selected = withPrice(fields);
+        List<Map<String, Object>> rows;
+        if (priceIndex.isReady()) {
+            rows = findFieldsInOrder(after == null
+                    ? priceIndex.descending(pageLimit.max())
+                    : priceIndex.descendingBefore(after.price(), after.id(), pageLimit.max()), selected);
+        } else {
+            rows = repository.findFields(selected, after == null ? null : ProductSpecifications.priceDescAfter(after.price(), after.id()),
+                    BY_PRICE_DESC, pageLimit);
+        }
+        return toFieldPage(rows, limit, fields);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> filterProducts(ProductFilter filter, ProductSort sort, String cursor, int limit,
+                                                          Set<ProductField> fields) {
+        logger.debug("Filtering fields {} of products by {} ordered by {} after cursor {} with limit {}",
+                fields, filter, sort, cursor, limit);
+        Limit pageLimit = pageLimit(limit);
+        List<Map<String, Object>> rows = repository.findFields(withPrice(fields), filterAfter(filter, sort, cursor),
+                sort.sort(), pageLimit);
+        return toFieldPage(rows, limit, fields);
+    }
+
+    // Same as findAllInOrder, for projected rows
+    private List<Map<String, Object>> findFieldsInOrder(long[] ids, Set<ProductField> fields) {
+        Map<Long, Map<String, Object>> rowsById = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+            List<Long> batch = new ArrayList<>(Math.min(ID_BATCH_SIZE, ids.length - from));
+            for (int i = from; i < Math.min(from + ID_BATCH_SIZE, ids.length); i++) {
+                batch.add(ids[i]);
+            }
+            for (Map<String, Object> row : repository.findFields(fields, ProductSpecifications.idIn(batch), Sort.unsorted(), Limit.unlimited())) {
+                rowsById.put((Long) row.get(ProductField.ID.property()), row);
+            }
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Map<String, Object> row = rowsById.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static Set<ProductField> withPrice(Set<ProductField> fields) {
+        if (fields.contains(ProductField.PRICE)) {
+            return fields;
+        }
+        Set<ProductField> selected = EnumSet.copyOf(fields);
+        selected.add(ProductField.PRICE);
+        return selected;
+    }
+
+    // Builds the cursor from the last row, then drops the price again if it was only selected for the cursor
+    private static CursorPage<Map<String, Object>> toFieldPage(List<Map<String, Object>> rows, int limit, Set<ProductField> fields) {
+        List<Map<String, Object>> items = rows.size() <= limit ? rows : rows.subList(0, limit);
+        String next = null;
+        if (rows.size() > limit) {
+            Map<String, Object> last = items.get(limit - 1);
+            Object price = last.get(ProductField.PRICE.property());
+            next = new ProductCursor(price == null ? 0 : (Double) price, (Long) last.get(ProductField.ID.property())).encode();
+        }
+        if (!fields.contains(ProductField.PRICE)) {
+            items.forEach(row -> row.remove(ProductField.PRICE.property()));
+        }
+        return new CursorPage<>(items, next);
+    }
+
+    private static <T> List<T> nonEmpty(List<T> rows, String message) {
+        if (rows.isEmpty()) {
+            throw new ProductNotFoundException(message);
+        }
+        return rows;
+    }
+
+    /**
+     * Streams every product to {@code sink} straight from the JDBC result set. Each entity is detached
+     * once it has been handed over, so heap use stays flat regardless of catalog size. An exception
+     * thrown by the sink (e.g. the client disconnected) closes the stream and with it the query.
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(Consumer<Product> sink) {
+        logger.debug("Exporting all products");
+        long exported = 0;
+        try (Stream<Product> products = repository.streamAllBy()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                sink.accept(product);
+                entityManager.detach(product);
+                exported++;
+            }
+        }
+        return exported;
+    }
+
     public Product saveProduct(Product product) {
         logger.debug("Saving new product with name {}", product.getName());
-        return repository.save(product);
+        boolean created = product.getId() == 0;
+        // The write and its change record commit together; caches and indexes follow once both have
+        Product savedProduct = transactions.execute(status -> {
+            Product saved = repository.save(product);
+            if (created) {
+                changeLog.recordCreated(List.of(saved));
+            } else {
+                changeLog.recordUpdated(List.of(saved));
+            }
+            return saved;
+        });
+        onProductWritten(savedProduct);
+        return savedProduct;
     }
 
     public void deleteProduct(Long id) {
-        // Reuse getProductById to handle validation and existence check
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("Invalid product ID: " + id);
+        }
         logger.debug("Deleting product by id {}", id);
-        getProductById(id);
-        repository.deleteById(id);
+        int deleted = transactions.execute(status -> {
+            int rows = repository.deleteProductById(id);
+            if (rows > 0) {
+                changeLog.recordDeleted(List.of(id));
+            }
+            return rows;
+        });
+        if (deleted == 0) {
+            throw new ProductNotFoundException("Product with id " + id + " was not found");
+        }
+        onProductDeleted(id);
     }
 
 
+
     public Product updateProduct(Long id, Product product) {
-        // Reuse getProductById to handle validation and existence check
-        Product existingProduct = getProductById(id);
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("Invalid product ID: " + id);
+        }
         logger.debug("Updating product with id {}", id);
-        existingProduct.setName(product.getName());
-        existingProduct.setCategory(product.getCategory());
-        existingProduct.setPrice(product.getPrice());
-        existingProduct.setDescription(product.getDescription());
-        return repository.save(existingProduct);
+        // Changes a managed copy read inside the transaction; the cached instance is shared with readers
+        // and is never modified, so a failed save leaves nothing behind
+        Product updatedProduct = transactions.execute(status -> {
+            Product existingProduct = repository.findById(id)
+                    .orElseThrow(() -> new ProductNotFoundException("Product with id " + id + " was not found"));
+            existingProduct.setName(product.getName());
+            existingProduct.setCategory(product.getCategory());
+            existingProduct.setPrice(product.getPrice());
+            existingProduct.setDescription(product.getDescription());
+            Product saved = repository.save(existingProduct);
+            changeLog.recordUpdated(List.of(saved));
+            return saved;
+        });
+        onProductWritten(updatedProduct);
+        return updatedProduct;
+    }
+
+    /**
+     * Applies a partial update with one conditional UPDATE and no prior SELECT. Returns the new
+     * version. The row is only read back when the name or description changed, since the search
+     * index needs both; price and category changes are applied to the indexes directly.
+     */
+    public long patchProduct(Long id, ProductPatch patch) {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("Invalid product ID: " + id);
+        }
+        if (patch.version() == null) {
+            throw new IllegalArgumentException("The version of the product being patched is required");
+        }
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("The patch does not change any field");
+        }
+        logger.debug("Patching product with id {} at version {}", id, patch.version());
+        int patched = transactions.execute(status -> {
+            int rows = repository.patch(id, patch.version(), patch);
+            if (rows > 0) {
+                changeLog.recordPatched(id, patch.version() + 1, patch);
+            }
+            return rows;
+        });
+        if (patched == 0) {
+            if (DataSourceRouting.onPrimary(() -> repository.existsById(id))) {
+                throw new ProductVersionConflictException("Product with id " + id + " was modified since version " + patch.version());
+            }
+            throw new ProductNotFoundException("Product with id " + id + " was not found");
+        }
+        productCache.invalidate(id);
+        jsonCache.invalidate(id);
+        if (patch.changesText()) {
+            DataSourceRouting.onPrimary(() -> repository.findById(id)).ifPresent(this::onProductWritten);
+        } else {
+            if (patch.price() != null) {
+                priceIndex.put(id, patch.price(), patch.version() + 1);
+            }
+            String previousCategory = patch.category() != null
+                    ? categoryIndex.put(id, patch.category())
+                    : categoryIndex.categoryOf(id);
+            categoryStats.patch(id, patch.category(), patch.price());
+            bumpVersions(previousCategory, patch.category());
+        }
+        return patch.version() + 1;
+    }
+
+    public BulkResult createProducts(List<Product> products) {
+        logger.debug("Creating {} products in batches of {}", products.size(), batchWriter.batchSize());
+        BulkItemResult[] results = new BulkItemResult[products.size()];
+        List<Integer> pending = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product == null) {
+                results[i] = BulkItemResult.failed(i, null, "Product must not be null");
+            } else if (product.getId() != 0) {
+                results[i] = BulkItemResult.failed(i, product.getId(), "New products must not carry an id");
+            } else {
+                pending.add(i);
+            }
+        }
+        forEachBatch(pending, results, index -> null, batch -> {
+            List<Product> inserted = batchWriter.insert(batch.stream().map(products::get).toList());
+            onProductsWritten(inserted);
+            for (int i = 0; i < batch.size(); i++) {
+                Product product = inserted.get(i);
+                results[batch.get(i)] = new BulkItemResult(batch.get(i), product.getId(), BulkItemStatus.CREATED, null);
+            }
+        });
+        return BulkResult.of(results);
+    }
+
+    public BulkResult updateProducts(List<Product> products) {
+        logger.debug("Updating {} products in batches of {}", products.size(), batchWriter.batchSize());
+        BulkItemResult[] results = new BulkItemResult[products.size()];
+        List<Integer> pending = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (product == null || product.getId() <= 0) {
+                results[i] = BulkItemResult.failed(i, product == null ? null : product.getId(), "Product id is required");
+            } else {
+                pending.add(i);
+            }
+        }
+        forEachBatch(pending, results, index -> products.get(index).getId(), batch -> {
+            Map<Long, Product> updated = batchWriter.update(batch.stream().map(products::get).toList());
+            onProductsWritten(List.copyOf(updated.values()));
+            for (int index : batch) {
+                long id = products.get(index).getId();
+                Product product = updated.get(id);
+                if (product == null) {
+                    results[index] = new BulkItemResult(index, id, BulkItemStatus.NOT_FOUND, null);
+                } else {
+                    results[index] = new BulkItemResult(index, id, BulkItemStatus.UPDATED, null);
+                }
+            }
+        });
+        return BulkResult.of(results);
+    }
+
+    public BulkResult deleteProducts(List<Long> ids) {
+        logger.debug("Deleting {} products in batches of {}", ids.size(), batchWriter.batchSize());
+        BulkItemResult[] results = new BulkItemResult[ids.size()];
+        List<Integer> pending = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null || id <= 0) {
+                results[i] = BulkItemResult.failed(i, id, "Invalid product ID: " + id);
+            } else {
+                pending.add(i);
+            }
+        }
+        forEachBatch(pending, results, ids::get, batch -> {
+            Set<Long> deleted = batchWriter.delete(batch.stream().map(ids::get).toList());
+            for (int index : batch) {
+                long id = ids.get(index);
+                if (deleted.contains(id)) {
+                    onProductDeleted(id);
+                    results[index] = new BulkItemResult(index, id, BulkItemStatus.DELETED, null);
+                } else {
+                    results[index] = new BulkItemResult(index, id, BulkItemStatus.NOT_FOUND, null);
+                }
+            }
+        });
+        return BulkResult.of(results);
+    }
+
+    // Runs the write for the request items at the given positions, one transaction per batch.
+    // A failing batch is rolled back as a whole, so every item in it is reported as failed.
+    private void forEachBatch(List<Integer> indexes, BulkItemResult[] results, IntFunction<Long> idOf,
+                              Consumer<List<Integer>> write) {
+        int batchSize = batchWriter.batchSize();
+        for (int from = 0; from < indexes.size(); from += batchSize) {
+            List<Integer> batch = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+            try {
+                write.accept(batch);
+            } catch (RuntimeException ex) {
+                logger.error("Bulk batch starting at item {} failed: {}", batch.get(0), ex.getMessage());
+                for (int index : batch) {
+                    results[index] = BulkItemResult.failed(index, idOf.apply(index), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void onProductWritten(Product product) {
+        priceIndex.put(product.getId(), product.getPrice(), product.getVersion());
+        onProductWrittenExceptPrice(product);
+    }
+
+    // A bulk batch goes into the price index with one merge instead of one array shift per product
+    private void onProductsWritten(List<Product> products) {
+        priceIndex.putAll(products.stream()
+                .map(product -> new PriceIndex.Entry(product.getId(), product.getPrice(), product.getVersion()))
+                .toList());
+        products.forEach(this::onProductWrittenExceptPrice);
+    }
+
+    // The cached entry is dropped rather than replaced: two writers finishing out of order could otherwise
+    // leave the older version cached
+    private void onProductWrittenExceptPrice(Product product) {
+        productCache.invalidate(product.getId());
+        jsonCache.invalidate(product.getId());
+        String previousCategory = categoryIndex.put(product.getId(), product.getCategory());
+        searchIndex.put(product.getId(), product.getName(), product.getDescription());
+        categoryStats.put(product.getId(), product.getCategory(), product.getPrice());
+        bumpVersions(previousCategory, product.getCategory());
+    }
+
+    private void onProductDeleted(long id) {
+        evictCached(id);
+        priceIndex.remove(id);
+        String previousCategory = categoryIndex.remove(id);
+        searchIndex.remove(id);
+        categoryStats.remove(id);
+        bumpVersions(previousCategory, null);
+    }
+
+    /**
+     * Applies a change committed through another instance, as read from the change feed: the cached
+     * copy is dropped and the listing tags move on. The categories the product left or joined are not
+     * known here, so every category listing revalidates.
+     */
+    public void onRemoteChange(long id) {
+        evictCached(id);
+        catalogVersions.productChanged();
+        catalogVersions.allCategoriesChanged();
+    }
+
+    private void evictCached(long id) {
+        productCache.invalidate(id);
+        jsonCache.invalidate(id);
+    }
+
+    // Called once the write has committed, see CatalogVersions
+    private void bumpVersions(String previousCategory, String category) {
+        catalogVersions.productChanged(previousCategory, Objects.equals(previousCategory, category) ? null : category);
+        if (!categoryIndex.isReady()) {
+            // The category a product was in before is only known once the index is loaded
+            catalogVersions.allCategoriesChanged();
+        }
+    }
+
+    /**
+     * Reloads the in-memory indexes from the database. Runs once at startup and can be triggered
+     * again to recover from drift, e.g. after rows were changed outside this service. Reads the
+     * primary: a lagging replica's snapshot would undo writes already applied to the indexes.
+     * <p>
+     * Each index reads in a transaction of its own, opened once it buffers writes. A shared snapshot
+     * would miss writes that commit after it is taken but before a later index starts buffering.
+     */
+    public void rebuildIndexes() {
+        logger.info("Rebuilding product indexes");
+        priceIndex.rebuild(loader -> scanPrimary(repository::streamIdAndPrice,
+                row -> loader.add((Long) row[0], (Double) row[1], (Long) row[2])));
+        logger.info("Rebuilt price index with {} products", priceIndex.size());
+        categoryIndex.rebuild(loader -> scanPrimary(repository::streamIdAndCategory,
+                row -> loader.add((Long) row[0], (String) row[1])));
+        logger.info("Rebuilt category index with {} categories", categoryIndex.counts().size());
+        searchIndex.rebuild(loader -> scanPrimary(repository::streamIdAndText,
+                row -> loader.add((Long) row[0], (String) row[1], (String) row[2])));
+        logger.info("Rebuilt search index");
+        rebuildCategoryStats();
+        // The rebuild may pick up rows changed outside this service, so no tag handed out so far can be trusted
+        catalogVersions.invalidateAll();
+    }
+
+    private void rebuildCategoryStats() {
+        categoryStats.rebuild(loader -> scanPrimary(repository::streamIdCategoryAndPrice,
+                row -> loader.add((Long) row[0], (String) row[1], (Double) row[2])));
+        logger.info("Rebuilt category statistics for {} categories", categoryStats.totals().size());
+    }
+
+    // Streams the rows of query from the primary, in a transaction of its own that the stream needs
+    private void scanPrimary(Supplier<Stream<Object[]>> query, Consumer<Object[]> action) {
+        DataSourceRouting.onPrimary(() -> transactions.execute(status -> {
+            try (Stream<Object[]> rows = query.get()) {
+                rows.forEach(action);
+            }
+            return null;
+        }));
     }
 }
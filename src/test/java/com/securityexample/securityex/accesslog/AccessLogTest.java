@@ -0,0 +1,64 @@
+package com.securityexample.securityex.accesslog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWritesOneJsonLinePerRecord() throws Exception {
+        Path file = dir.resolve("logs/access.log");
+        AccessLog accessLog = new AccessLog(true, file, 1.0, 16, 4);
+        accessLog.start();
+
+        assertTrue(accessLog.sample(200));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(accessLog.offer(record("/api/v1/products/" + i, null)));
+        }
+        accessLog.offer(record("/api/v1/products/search", "q=\"red\""));
+        accessLog.stop();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(11, lines.size());
+        assertEquals(11, accessLog.written());
+        assertEquals("{\"time\":\"1970-01-01T00:00:01Z\",\"method\":\"GET\",\"path\":\"/api/v1/products/0\",\"status\":200,"
+                + "\"durationMicros\":150,\"remote\":\"127.0.0.1\",\"virtualThread\":false}", lines.get(0));
+        assertTrue(lines.get(10).contains("\"query\":\"q=\\\"red\\\"\""), lines.get(10));
+    }
+
+    @Test
+    void testDropsWhenBufferIsFull() {
+        AccessLog accessLog = new AccessLog(true, dir.resolve("access.log"), 1.0, 4, 4);
+
+        // Not started, so nothing drains the buffer
+        for (int i = 0; i < 6; i++) {
+            accessLog.offer(record("/api/v1/products", null));
+        }
+
+        assertEquals(2, accessLog.dropped());
+    }
+
+    @Test
+    void testSamplesSuccessesButKeepsServerErrors() {
+        AccessLog accessLog = new AccessLog(true, dir.resolve("access.log"), 0.0, 4, 4);
+        accessLog.start();
+
+        assertFalse(accessLog.sample(200));
+        assertTrue(accessLog.sample(503));
+        accessLog.stop();
+        assertFalse(accessLog.sample(503));
+    }
+
+    private static AccessLogRecord record(String path, String query) {
+        return new AccessLogRecord(1_000, "GET", path, query, 200, 150, "127.0.0.1", false);
+    }
+}
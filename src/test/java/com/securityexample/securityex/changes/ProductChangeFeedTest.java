@@ -0,0 +1,181 @@
+package com.securityexample.securityex.changes;
+
+import com.securityexample.securityex.cache.CatalogVersions;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.entity.ProductChange;
+import com.securityexample.securityex.entity.ProductChangeType;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.repository.ProductChangeRepository;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:changes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "products.changes.settle-delay=0s",
+        // Pushed by the tests themselves
+        "products.changes.poll-interval=3600000",
+        "products.access-log.enabled=false"
+})
+@AutoConfigureMockMvc
+class ProductChangeFeedTest {
+
+    @Autowired
+    private ProductServiceImpl service;
+
+    @Autowired
+    private ProductChangeFeed changeFeed;
+
+    @Autowired
+    private ProductChangeRepository changeRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long since;
+
+    @BeforeEach
+    void setUp() {
+        since = changeRepository.findLastSeq();
+    }
+
+    @Test
+    void testWritesAppendChangesInOrder() throws Exception {
+        Product product = service.saveProduct(new Product("Lamp", "Home", 30.0, "Desk lamp"));
+        long id = product.getId();
+        service.patchProduct(id, new ProductPatch(null, null, 25.0, null, 0L));
+        Product replacement = new Product("Lamp", "Lighting", 25.0, "Desk lamp");
+        service.updateProduct(id, replacement);
+        service.deleteProduct(id);
+
+        mockMvc.perform(get("/api/v1/products/changes").param("since", Long.toString(since)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[*].type", contains("CREATED", "UPDATED", "UPDATED", "DELETED")))
+                .andExpect(jsonPath("$.changes[*].productId", everyItem(is((int) id))))
+                .andExpect(jsonPath("$.changes[*].version", contains(0, 1, 2, null)))
+                .andExpect(jsonPath("$.changes[0].payload.name").value("Lamp"))
+                .andExpect(jsonPath("$.changes[1].payload.price").value(25.0))
+                .andExpect(jsonPath("$.changes[1].payload.name").doesNotExist())
+                .andExpect(jsonPath("$.changes[2].payload.category").value("Lighting"))
+                .andExpect(jsonPath("$.changes[3].payload").value(nullValue()))
+                .andExpect(jsonPath("$.more").value(false));
+    }
+
+    @Test
+    void testPagesThroughChanges() {
+        service.createProducts(List.of(new Product("A", "Books", 1.0, "a"), new Product("B", "Books", 2.0, "b"),
+                new Product("C", "Books", 3.0, "c")));
+
+        ChangePage first = changeFeed.changes(since, 2);
+        assertEquals(2, first.changes().size());
+        assertTrue(first.more());
+
+        ChangePage second = changeFeed.changes(first.next(), 2);
+        assertEquals(1, second.changes().size());
+        assertEquals("C", service.getProductById(second.changes().get(0).getProductId()).getName());
+        assertFalse(second.more());
+
+        ChangePage empty = changeFeed.changes(second.next(), 2);
+        assertTrue(empty.changes().isEmpty());
+        assertEquals(second.next(), empty.next());
+    }
+
+    @Test
+    void testInvalidSinceIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/products/changes").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testChangesFromOtherInstancesMoveTagsAndEvictCache() {
+        changeFeed.push();
+        Product product = service.saveProduct(new Product("Kettle", "Kitchen", 40.0, "Steel"));
+        long id = product.getId();
+        assertEquals(0L, service.getProductById(id).getVersion());
+        changeFeed.push();
+        String catalogTag = catalogVersions.catalogTag();
+        String categoryTag = catalogVersions.categoryTag("Kitchen");
+
+        // Another instance's update: the row and its change, neither seen by this instance's write paths
+        jdbcTemplate.update("UPDATE products SET price = 35.0, version = version + 1 WHERE id = ?", id);
+        changeRepository.save(new ProductChange(id, ProductChangeType.UPDATED, 1L, Instant.now(), null, "other"));
+        assertEquals(0L, service.getProductById(id).getVersion());
+        changeFeed.push();
+
+        assertEquals(1L, service.getProductById(id).getVersion());
+        assertNotEquals(catalogTag, catalogVersions.catalogTag());
+        assertNotEquals(categoryTag, catalogVersions.categoryTag("Kitchen"));
+    }
+
+    @Test
+    void testOwnChangesAreNotAppliedTwice() {
+        changeFeed.push();
+        service.saveProduct(new Product("Mug", "Kitchen", 5.0, "Ceramic"));
+        String catalogTag = catalogVersions.catalogTag();
+        String otherTag = catalogVersions.categoryTag("Garden");
+
+        changeFeed.push();
+
+        assertEquals(catalogTag, catalogVersions.catalogTag());
+        assertEquals(otherTag, catalogVersions.categoryTag("Garden"));
+    }
+
+    @Test
+    void testStreamResumesFromLastEventId() throws Exception {
+        Product first = service.saveProduct(new Product("First", "Books", 1.0, "a"));
+        Product second = service.saveProduct(new Product("Second", "Books", 2.0, "b"));
+        long firstSeq = changeFeed.changes(since, 1).next();
+
+        MvcResult stream = mockMvc.perform(get("/api/v1/products/changes/stream")
+                        .header("Last-Event-ID", Long.toString(firstSeq)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        changeFeed.push();
+
+        String body = awaitBody(stream, "id:" + (firstSeq + 1));
+        assertFalse(body.contains("\"productId\":" + first.getId() + ","));
+        assertTrue(body.contains("id:" + (firstSeq + 1)));
+        assertTrue(body.contains("\"productId\":" + second.getId() + ","));
+        assertEquals(1, changeFeed.subscriberCount());
+
+        stream.getRequest().getAsyncContext().complete();
+    }
+
+    // Streams are written by their own task, after push() has returned
+    private static String awaitBody(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String body = stream.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            body = stream.getResponse().getContentAsString();
+        }
+        return body;
+    }
+}
@@ -0,0 +1,79 @@
+package com.securityexample.securityex.coalesce;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatcherTest {
+
+    @Test
+    void testConcurrentLoadsShareOneBulkLoad() throws Exception {
+        List<Set<Integer>> bulkLoads = new CopyOnWriteArrayList<>();
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(Duration.ofSeconds(10), 4, keys -> {
+            bulkLoads.add(Set.copyOf(keys));
+            Map<Integer, String> values = new HashMap<>();
+            keys.stream().filter(key -> key != 3).forEach(key -> values.put(key, "v" + key));
+            return values;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int key = 1; key <= 4; key++) {
+                int k = key;
+                results.add(executor.submit(() -> batcher.load(k)));
+            }
+
+            // The window is long, so the batch is flushed because it filled up
+            assertEquals("v1", results.get(0).get(10, TimeUnit.SECONDS));
+            assertEquals("v2", results.get(1).get(10, TimeUnit.SECONDS));
+            assertNull(results.get(2).get(10, TimeUnit.SECONDS));
+            assertEquals("v4", results.get(3).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of(Set.of(1, 2, 3, 4)), bulkLoads);
+        assertEquals(1, batcher.batches());
+        assertEquals(4, batcher.keys());
+    }
+
+    @Test
+    void testLoneLoadIsFlushedAfterWindow() {
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(Duration.ofMillis(1), 100,
+                keys -> Map.of(keys.iterator().next(), "value"));
+
+        assertEquals("value", batcher.load(7));
+        assertEquals("value", batcher.load(8));
+        assertEquals(2, batcher.batches());
+    }
+
+    @Test
+    void testFailedBulkLoadFailsEveryCaller() throws Exception {
+        IllegalStateException failure = new IllegalStateException("boom");
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>(Duration.ofSeconds(10), 2, keys -> {
+            throw failure;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Throwable> first = executor.submit(() -> assertThrows(IllegalStateException.class, () -> batcher.load(1)));
+            Future<Throwable> second = executor.submit(() -> assertThrows(IllegalStateException.class, () -> batcher.load(2)));
+
+            assertSame(failure, first.get(10, TimeUnit.SECONDS));
+            assertSame(failure, second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
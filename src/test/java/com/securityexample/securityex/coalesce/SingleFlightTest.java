@@ -0,0 +1,150 @@
+package com.securityexample.securityex.coalesce;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<String> values = runConcurrently(flight, () -> flight.execute("k", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        }), release);
+
+        assertEquals(List.of("value"), values.stream().distinct().toList());
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.loads());
+        assertEquals(CALLERS - 1, flight.collapsed());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void testFailureReachesEveryWaiter() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        List<String> messages = runConcurrently(flight, () -> {
+            try {
+                return flight.execute("k", () -> {
+                    await(release);
+                    throw failure;
+                });
+            } catch (IllegalStateException ex) {
+                assertSame(failure, ex);
+                return ex.getMessage();
+            }
+        }, release);
+
+        assertEquals(List.of("boom"), messages.stream().distinct().toList());
+        assertEquals(1, flight.loads());
+        assertEquals(CALLERS - 1, flight.collapsed());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void testFinishedLoadIsNotReused() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(Duration.ofSeconds(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, flight.execute("k", loads::incrementAndGet));
+        assertEquals(2, flight.execute("k", loads::incrementAndGet));
+        assertEquals(0, flight.collapsed());
+    }
+
+    @Test
+    void testWaiterLoadsItselfAfterTimeout() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("k", () -> {
+                await(release);
+                return "slow";
+            }));
+            while (flight.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertEquals("fast", flight.execute("k", () -> "fast"));
+            assertEquals(1, flight.timeouts());
+
+            release.countDown();
+            assertEquals("slow", leader.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Starts the first caller, waits for its load to be in flight, then starts the others and releases the load
+    // once they are all parked on it
+    private static <T> List<T> runConcurrently(SingleFlight<?, ?> flight, Supplier<T> call, CountDownLatch release)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Thread> threads = new ArrayList<>();
+            List<Future<T>> results = new ArrayList<>();
+            results.add(executor.submit(call::get));
+            while (flight.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+            CountDownLatch started = new CountDownLatch(CALLERS - 1);
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    started.countDown();
+                    return call.get();
+                }));
+            }
+            started.await();
+            synchronized (threads) {
+                for (Thread thread : threads) {
+                    while (thread.getState() != Thread.State.TIMED_WAITING) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+            release.countDown();
+            List<T> values = new ArrayList<>();
+            for (Future<T> result : results) {
+                values.add(result.get(10, TimeUnit.SECONDS));
+            }
+            return values;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,25 +1,57 @@
 package com.securityexample.securityex.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.securityexample.securityex.accesslog.AccessLog;
+import com.securityexample.securityex.bulk.BulkItemResult;
+import com.securityexample.securityex.bulk.BulkItemStatus;
+import com.securityexample.securityex.bulk.BulkResult;
+import com.securityexample.securityex.bulk.MultiGetResult;
+import com.securityexample.securityex.cache.CatalogVersions;
 import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.filter.ProductFilter;
+import com.securityexample.securityex.filter.ProductSort;
+import com.securityexample.securityex.index.CategoryStats;
+import com.securityexample.securityex.index.PriceBucket;
 import com.securityexample.securityex.exception.ProductNotFoundException;
+import com.securityexample.securityex.exception.ProductVersionConflictException;
+import com.securityexample.securityex.json.ProductJsonCache;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.pagination.SearchPage;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
 import com.securityexample.securityex.service.ProductServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(ProductController.class)
+@WebMvcTest(controllers = ProductController.class, properties = "products.access-log.enabled=false")
+@Import({AccessLog.class, CatalogVersions.class, ProductJsonCache.class, SimpleMeterRegistry.class})
 class ProductControllerTest {
 
     @Autowired
@@ -28,9 +60,20 @@ class ProductControllerTest {
     @MockBean
     private ProductServiceImpl productService;
 
+    @Autowired
+    private CatalogVersions catalogVersions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductJsonCache jsonCache;
+
     @BeforeEach
     void setUp() {
         // No need to manually initialize mocks with MockitoAnnotations.openMocks(this) here
+        // Mocked products reuse ids and versions across tests, so their cached JSON would be served stale
+        jsonCache.invalidateAll();
     }
 
     // Happy Path
@@ -53,6 +96,113 @@ class ProductControllerTest {
         verify(productService).getProductById(1L);
     }
 
+    @Test
+    void testGetProductByIdGzipped() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "A long description. ".repeat(100));
+        product.setId(1L);
+
+        when(productService.getProductById(1L)).thenReturn(product);
+
+        MvcResult gzipped = mockMvc.perform(get("/api/v1/products/1").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+        MvcResult plain = mockMvc.perform(get("/api/v1/products/1").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.name").value("Product"))
+                .andReturn();
+
+        assertTrue(gzipped.getResponse().getContentAsByteArray().length < plain.getResponse().getContentAsByteArray().length);
+        assertNotEquals(gzipped.getResponse().getHeader(HttpHeaders.ETAG), plain.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testGetAllProductsAsCbor() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productService.getAllProducts()).thenReturn(List.of(product));
+
+        MvcResult cbor = mockMvc.perform(get("/api/v1/products").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+        MvcResult json = mockMvc.perform(get("/api/v1/products").accept("application/cbor;q=0.5, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        Product[] decoded = new ObjectMapper(new CBORFactory()).readValue(cbor.getResponse().getContentAsByteArray(), Product[].class);
+        assertEquals("Product", decoded[0].getName());
+        assertNotEquals(cbor.getResponse().getHeader(HttpHeaders.ETAG), json.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testGetProductByIdAsSmile() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productService.getProductById(1L)).thenReturn(product);
+
+        MvcResult smile = mockMvc.perform(get("/api/v1/products/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+        mockMvc.perform(get("/api/v1/products/1").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name").value("Product"));
+
+        Product decoded = new ObjectMapper(new SmileFactory()).readValue(smile.getResponse().getContentAsByteArray(), Product.class);
+        assertEquals(1L, decoded.getId());
+    }
+
+    @Test
+    void testGetProductByIdNotModified() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productService.getProductById(1L)).thenReturn(product);
+
+        MvcResult first = mockMvc.perform(get("/api/v1/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn();
+        assertEquals(1, first.getResponse().getHeaders(HttpHeaders.ETAG).size());
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/products/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // A write through any instance bumps the persisted version
+        product.setVersion(1L);
+        mockMvc.perform(get("/api/v1/products/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
+    }
+
+    @Test
+    void testGetProductsByCategoryNotModified() throws Exception {
+        when(productService.getProductsByCategory("Category")).thenReturn(Collections.emptyList());
+
+        String etag = mockMvc.perform(get("/api/v1/products/category/Category"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/products/category/Category").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        catalogVersions.productChanged("Other");
+        mockMvc.perform(get("/api/v1/products/category/Category").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        verify(productService, times(1)).getProductsByCategory("Category");
+    }
+
     @Test
     void testGetProductByName() throws Exception {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -67,6 +217,29 @@ class ProductControllerTest {
         verify(productService).getProductByName("Product");
     }
 
+    @Test
+    void testSearchProducts() throws Exception {
+        Product product = new Product("Wireless Mouse", "Category", 20.0, "Description");
+
+        when(productService.searchProducts("mouse", 0, 20)).thenReturn(new SearchPage<>(List.of(product), 1, 0, 20));
+
+        mockMvc.perform(get("/api/v1/products/search").param("q", "mouse"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Wireless Mouse"))
+                .andExpect(jsonPath("$.total").value(1));
+
+        verify(productService).searchProducts("mouse", 0, 20);
+    }
+
+    @Test
+    void testSuggestSearchTerms() throws Exception {
+        when(productService.suggestSearchTerms("mou", 10)).thenReturn(List.of("mouse", "mousepad"));
+
+        mockMvc.perform(get("/api/v1/products/search/suggest").param("prefix", "mou"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1]").value("mousepad"));
+    }
+
     @Test
     void testGetProductByCategory() throws Exception {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -81,6 +254,52 @@ class ProductControllerTest {
         verify(productService).getProductsByCategory("Category");
     }
 
+    @Test
+    void testGetProductsInAnyCategory() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+
+        when(productService.getProductsInAnyCategory(List.of("Category", "Other"))).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/v1/products/category").param("any", "Category,Other"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].category").value("Category"));
+
+        verify(productService).getProductsInAnyCategory(List.of("Category", "Other"));
+    }
+
+    @Test
+    void testGetProductIdsByCategory() throws Exception {
+        when(productService.getProductIdsByCategory("Category")).thenReturn(new long[]{1L, 3L});
+
+        mockMvc.perform(get("/api/v1/products/category/Category/ids"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[1,3]"));
+    }
+
+    @Test
+    void testGetCategoryCounts() throws Exception {
+        when(productService.getCategoryCounts()).thenReturn(Map.of("Category", 2L));
+
+        mockMvc.perform(get("/api/v1/products/categories"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.Category").value(2));
+    }
+
+    @Test
+    void testGetCategoryStats() throws Exception {
+        CategoryStats stats = new CategoryStats(2, 150.0, 50.0, 100.0, 75.0,
+                List.of(new PriceBucket(null, 100.0, 1), new PriceBucket(100.0, null, 1)));
+        when(productService.getCategoryStats(aryEq(new double[]{100}))).thenReturn(Map.of("Category", stats));
+
+        mockMvc.perform(get("/api/v1/products/aggregates").param("bounds", "100"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.Category.count").value(2))
+                .andExpect(jsonPath("$.Category.average").value(75.0))
+                .andExpect(jsonPath("$.Category.histogram[0].from").doesNotExist())
+                .andExpect(jsonPath("$.Category.histogram[1].from").value(100.0));
+    }
+
     @Test
     void testListAllProductsByPricesAsc() throws Exception {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -109,6 +328,20 @@ class ProductControllerTest {
         verify(productService).findAllProductsByPriceDesc();
     }
 
+    @Test
+    void testListProductsByPriceRange() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        List<Product> products = Collections.singletonList(product);
+
+        when(productService.getProductsByPriceRange(50.0, 150.0, 100)).thenReturn(products);
+
+        mockMvc.perform(get("/api/v1/products/price/range").param("min", "50").param("max", "150"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].price").value(100.0));
+
+        verify(productService).getProductsByPriceRange(50.0, 150.0, 100);
+    }
+
     @Test
     void testGetAllProducts() throws Exception {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -123,6 +356,156 @@ class ProductControllerTest {
         verify(productService).getAllProducts();
     }
 
+    @Test
+    void testGetProductsByIds() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(2L);
+
+        when(productService.getProductsByIds(List.of(2L, 5L))).thenReturn(new MultiGetResult(List.of(product), List.of(5L)));
+
+        mockMvc.perform(get("/api/v1/products").param("ids", "2,5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id").value(2L))
+                .andExpect(jsonPath("$.missing[0]").value(5L));
+
+        verify(productService).getProductsByIds(List.of(2L, 5L));
+    }
+
+    @Test
+    void testIdsWithLimitOrFieldsIsRejected() throws Exception {
+        mockMvc.perform(get("/api/v1/products").param("ids", "1,2").param("limit", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products").param("ids", "1,2").param("fields", "name"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testLimitWithFieldsReturnsFieldsPage() throws Exception {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID, ProductField.NAME);
+        when(productService.getProductsPage(null, 10, fields))
+                .thenReturn(new CursorPage<>(List.of(Map.of("id", 1L, "name", "Product")), null));
+
+        mockMvc.perform(get("/api/v1/products").param("limit", "10").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Product"));
+
+        verify(productService).getProductsPage(null, 10, fields);
+    }
+
+    @Test
+    void testGetProductsPage() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productService.getProductsPage("abc", 1)).thenReturn(new CursorPage<>(List.of(product), "next"));
+
+        mockMvc.perform(get("/api/v1/products").param("limit", "1").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.next").value("next"));
+
+        verify(productService).getProductsPage("abc", 1);
+    }
+
+    @Test
+    void testListProductsPageByPricesAsc() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+
+        when(productService.getProductsPageByPriceAsc(null, 5)).thenReturn(new CursorPage<>(List.of(product), null));
+
+        mockMvc.perform(get("/api/v1/products/price/asc").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].price").value(100.0))
+                .andExpect(jsonPath("$.next").doesNotExist());
+
+        verify(productService).getProductsPageByPriceAsc(null, 5);
+    }
+
+    @Test
+    void testFilterProducts() throws Exception {
+        Product product = new Product("Lamp", "Home", 20.0, "Description");
+        ProductFilter filter = new ProductFilter("Home", null, 10.0, 50.0);
+
+        when(productService.filterProducts(filter, ProductSort.PRICE_DESC, null, 10)).thenReturn(new CursorPage<>(List.of(product), "next"));
+
+        mockMvc.perform(get("/api/v1/products/filter").param("category", "Home").param("minPrice", "10").param("maxPrice", "50")
+                        .param("sort", "price_desc").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Lamp"))
+                .andExpect(jsonPath("$.next").value("next"));
+
+        verify(productService).filterProducts(filter, ProductSort.PRICE_DESC, null, 10);
+    }
+
+    @Test
+    void testGetAllProductFields() throws Exception {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID, ProductField.NAME, ProductField.PRICE);
+        when(productService.getAllProducts(fields)).thenReturn(List.of(Map.of("id", 1L, "name", "Product", "price", 100.0)));
+
+        mockMvc.perform(get("/api/v1/products").param("fields", "name,price"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$[0].name").value("Product"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+
+        verify(productService).getAllProducts(fields);
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    void testGetProductFieldsPage() throws Exception {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID, ProductField.NAME);
+        when(productService.getProductsPageByPriceAsc(null, 5, fields))
+                .thenReturn(new CursorPage<>(List.of(Map.of("id", 1L, "name", "Product")), "next"));
+
+        mockMvc.perform(get("/api/v1/products/price/asc").param("limit", "5").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Product"))
+                .andExpect(jsonPath("$.next").value("next"));
+
+        verify(productService).getProductsPageByPriceAsc(null, 5, fields);
+    }
+
+    @Test
+    void testUnknownFieldIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/products/category/Category").param("fields", "name,colour"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportProducts() throws Exception {
+        Product first = new Product("First", "Category", 100.0, "Description");
+        first.setId(1L);
+        Product second = new Product("Second", "Category", 50.0, "Description");
+        second.setId(2L);
+
+        when(productService.exportProducts(any())).thenAnswer(invocation -> {
+            Consumer<Product> sink = invocation.getArgument(0);
+            sink.accept(first);
+            sink.accept(second);
+            return 2L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/v1/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+    }
+
     @Test
     void testCreateProduct() throws Exception {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -168,16 +551,87 @@ class ProductControllerTest {
         verify(productService).updateProduct(eq(1L), any(Product.class));
     }
 
+    @Test
+    void testPatchProduct() throws Exception {
+        ProductPatch patch = new ProductPatch(null, null, 120.0, null, 3L);
+
+        Product product = new Product("Product", "Category", 120.0, "Description");
+        product.setId(1L);
+        product.setVersion(4L);
+        when(productService.patchProduct(1L, patch)).thenReturn(4L);
+        when(productService.getProductById(1L)).thenReturn(product);
+
+        String etag = mockMvc.perform(patch("/api/v1/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\": 120.0, \"version\": 3}"))
+                .andExpect(status().isNoContent())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Same tag as a GET of the product returns
+        mockMvc.perform(get("/api/v1/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        verify(productService).patchProduct(1L, patch);
+    }
+
+    @Test
+    void testPatchProductConflict() throws Exception {
+        when(productService.patchProduct(eq(1L), any(ProductPatch.class)))
+                .thenThrow(new ProductVersionConflictException("Product with id 1 was modified since version 3"));
+
+        mockMvc.perform(patch("/api/v1/products/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\": 120.0, \"version\": 3}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testCreateProductsInBulk() throws Exception {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        BulkResult result = new BulkResult(1, 0, List.of(new BulkItemResult(0, 1L, BulkItemStatus.CREATED, null)));
+
+        when(productService.createProducts(anyList())).thenReturn(result);
+
+        mockMvc.perform(post("/api/v1/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(List.of(product))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[0].id").value(1L));
+
+        verify(productService).createProducts(anyList());
+    }
+
+    @Test
+    void testDeleteProductsInBulk() throws Exception {
+        BulkResult result = new BulkResult(1, 1, List.of(
+                new BulkItemResult(0, 1L, BulkItemStatus.DELETED, null),
+                new BulkItemResult(1, 2L, BulkItemStatus.NOT_FOUND, null)));
+
+        when(productService.deleteProducts(List.of(1L, 2L))).thenReturn(result);
+
+        mockMvc.perform(post("/api/v1/products/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.items[1].status").value("NOT_FOUND"));
+    }
+
     // Negative cases
 
     @Test
     void testGetProductByIdNotFound() throws Exception {
         when(productService.getProductById(1L)).thenThrow(ProductNotFoundException.class);
 
+        double notFoundBefore = meterRegistry.counter("products.not.found").count();
+
         mockMvc.perform(get("/api/v1/products/1"))
                 .andExpect(status().isNotFound());
 
         verify(productService).getProductById(1L);
+        assertEquals(notFoundBefore + 1, meterRegistry.counter("products.not.found").count());
     }
 
     @Test
@@ -264,6 +718,15 @@ class ProductControllerTest {
     }
 
 
+    @Test
+    void testInvalidCursorIsBadRequest() throws Exception {
+        when(productService.getProductsPageByPriceDesc("bad", 10)).thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+        mockMvc.perform(get("/api/v1/products/price/desc").param("limit", "10").param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid cursor: bad"));
+    }
+
     @Test
     void testHandleGenericException() throws Exception {
         // Simulate a situation where a generic exception would be thrown
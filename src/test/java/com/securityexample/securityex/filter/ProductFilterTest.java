@@ -0,0 +1,112 @@
+package com.securityexample.securityex.filter;
+
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.projection.ProductField;
+import com.securityexample.securityex.repository.ProductRepository;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:filter;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "products.access-log.enabled=false"
+})
+@AutoConfigureMockMvc
+class ProductFilterTest {
+
+    @Autowired
+    private ProductServiceImpl service;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAllInBatch();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(new Product(i % 2 == 0 ? "Lamp" : "Chair", i % 4 < 2 ? "Home" : "Office", 10.0 + i % 5, "Item " + i));
+        }
+        repository.saveAll(products);
+    }
+
+    @Test
+    void testCombinedFiltersPageThroughPriceOrder() {
+        ProductFilter filter = new ProductFilter("Home", "Lamp", 11.0, 13.0);
+        List<Product> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Product> page = service.filterProducts(filter, ProductSort.PRICE_DESC, cursor, 2);
+            seen.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+
+        List<Product> expected = repository.findAll().stream()
+                .filter(p -> p.getCategory().equals("Home") && p.getName().equals("Lamp"))
+                .filter(p -> p.getPrice() >= 11.0 && p.getPrice() <= 13.0)
+                .sorted((a, b) -> a.getPrice() != b.getPrice()
+                        ? Double.compare(b.getPrice(), a.getPrice()) : Long.compare(b.getId(), a.getId()))
+                .toList();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.stream().map(Product::getId).toList(), seen.stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void testProjectedFilterKeepsOnlyRequestedFields() {
+        CursorPage<Map<String, Object>> page = service.filterProducts(new ProductFilter("Office", null, null, null),
+                ProductSort.ID, null, 100, Set.of(ProductField.ID));
+
+        assertEquals(10, page.items().size());
+        assertNull(page.next());
+        assertEquals(Set.of("id"), page.items().get(0).keySet());
+    }
+
+    @Test
+    void testFilterEndpointPagesAndRejectsBadCriteria() throws Exception {
+        mockMvc.perform(get("/api/v1/products/filter").param("category", "Home").param("sort", "price_asc").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.items[*].category", everyItem(is("Home"))))
+                .andExpect(jsonPath("$.next", notNullValue()));
+        mockMvc.perform(get("/api/v1/products/filter").param("minPrice", "20").param("maxPrice", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products/filter").param("sort", "name"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCategoryAndPriceRangeUseCompositeIndex() {
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id FROM products WHERE category = 'Home' AND price BETWEEN 11 AND 13 ORDER BY price, id",
+                String.class);
+
+        assertTrue(plan.toUpperCase().contains("IDX_PRODUCTS_CATEGORY_PRICE_ID"), plan);
+    }
+}
@@ -0,0 +1,81 @@
+package com.securityexample.securityex.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryIndexTest {
+
+    private CategoryIndex categoryIndex;
+
+    @BeforeEach
+    void setUp() {
+        categoryIndex = new CategoryIndex();
+    }
+
+    @Test
+    void testRebuildAndCounts() {
+        categoryIndex.rebuild(loader -> {
+            loader.add(1L, "Books");
+            loader.add(2L, "Games");
+            loader.add(3L, "Books");
+            loader.add(4L, null);
+        });
+
+        assertTrue(categoryIndex.isReady());
+        assertEquals(Map.of("Books", 2L, "Games", 1L), categoryIndex.counts());
+        assertArrayEquals(new long[]{1L, 3L}, categoryIndex.ids("Books"));
+        assertArrayEquals(new long[0], categoryIndex.ids("Toys"));
+    }
+
+    @Test
+    void testPutMovesProductBetweenCategories() {
+        categoryIndex.put(1L, "Books");
+        categoryIndex.put(2L, "Books");
+        categoryIndex.put(1L, "Games");
+
+        assertArrayEquals(new long[]{2L}, categoryIndex.ids("Books"));
+        assertArrayEquals(new long[]{1L}, categoryIndex.ids("Games"));
+    }
+
+    @Test
+    void testRemoveDropsEmptyCategories() {
+        categoryIndex.put(1L, "Books");
+        categoryIndex.remove(1L);
+
+        assertTrue(categoryIndex.counts().isEmpty());
+    }
+
+    @Test
+    void testPutAndRemoveReturnPreviousCategory() {
+        assertNull(categoryIndex.put(1L, "Books"));
+        assertEquals("Books", categoryIndex.put(1L, "Games"));
+        assertEquals("Games", categoryIndex.categoryOf(1L));
+        assertEquals("Games", categoryIndex.remove(1L));
+        assertNull(categoryIndex.categoryOf(1L));
+    }
+
+    @Test
+    void testIdsInAny() {
+        categoryIndex.put(1L, "Books");
+        categoryIndex.put(2L, "Games");
+        categoryIndex.put(3L, "Toys");
+
+        assertArrayEquals(new long[]{1L, 3L}, categoryIndex.idsInAny(List.of("Toys", "Books", "Missing")));
+    }
+
+    @Test
+    void testWritesDuringRebuildAreKept() {
+        categoryIndex.rebuild(loader -> {
+            loader.add(1L, "Books");
+            categoryIndex.put(2L, "Games");
+            categoryIndex.remove(1L);
+        });
+
+        assertEquals(Map.of("Games", 1L), categoryIndex.counts());
+    }
+}
@@ -0,0 +1,106 @@
+package com.securityexample.securityex.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryStatsIndexTest {
+
+    private CategoryStatsIndex categoryStats;
+
+    @BeforeEach
+    void setUp() {
+        categoryStats = new CategoryStatsIndex(new double[]{10, 50, 100});
+    }
+
+    @Test
+    void testRebuildAndStats() {
+        categoryStats.rebuild(loader -> {
+            loader.add(1L, "Books", 5.0);
+            loader.add(2L, "Books", 50.0);
+            loader.add(3L, "Books", 120.0);
+            loader.add(4L, "Games", 30.0);
+            loader.add(5L, null, 1.0);
+        });
+
+        Map<String, CategoryStats> stats = categoryStats.stats(null);
+
+        assertTrue(categoryStats.isReady());
+        assertEquals(List.of("Books", "Games"), List.copyOf(stats.keySet()));
+        CategoryStats books = stats.get("Books");
+        assertEquals(3, books.count());
+        assertEquals(175.0, books.sum());
+        assertEquals(5.0, books.min());
+        assertEquals(120.0, books.max());
+        assertEquals(175.0 / 3, books.average());
+        assertEquals(List.of(new PriceBucket(null, 10.0, 1), new PriceBucket(10.0, 50.0, 0),
+                new PriceBucket(50.0, 100.0, 1), new PriceBucket(100.0, null, 1)), books.histogram());
+    }
+
+    @Test
+    void testMovesKeepMinAndMaxAfterRemovals() {
+        categoryStats.put(1L, "Books", 5.0);
+        categoryStats.put(2L, "Books", 40.0);
+        categoryStats.put(3L, "Books", 90.0);
+
+        categoryStats.remove(1L);
+        categoryStats.put(3L, "Games", 90.0);
+
+        CategoryStats books = categoryStats.stats(null).get("Books");
+        assertEquals(1, books.count());
+        assertEquals(40.0, books.min());
+        assertEquals(40.0, books.max());
+        assertEquals(1, categoryStats.stats(null).get("Games").count());
+    }
+
+    @Test
+    void testPatchKeepsUnchangedFields() {
+        categoryStats.put(1L, "Books", 20.0);
+
+        categoryStats.patch(1L, null, 200.0);
+        categoryStats.patch(1L, "Games", null);
+        categoryStats.patch(2L, "Games", 1.0);
+
+        Map<String, CategoryStats> stats = categoryStats.stats(null);
+        assertEquals(List.of("Games"), List.copyOf(stats.keySet()));
+        assertEquals(1, stats.get("Games").count());
+        assertEquals(200.0, stats.get("Games").max());
+    }
+
+    @Test
+    void testRequestedBoundsMergeBuckets() {
+        categoryStats.put(1L, "Books", 5.0);
+        categoryStats.put(2L, "Books", 20.0);
+        categoryStats.put(3L, "Books", 75.0);
+        categoryStats.put(4L, "Books", 150.0);
+
+        assertEquals(List.of(new PriceBucket(null, 50.0, 2), new PriceBucket(50.0, null, 2)),
+                categoryStats.stats(new double[]{50}).get("Books").histogram());
+        assertEquals(List.of(new PriceBucket(null, null, 4)),
+                categoryStats.stats(new double[0]).get("Books").histogram());
+        assertThrows(IllegalArgumentException.class, () -> categoryStats.stats(new double[]{20}));
+        assertThrows(IllegalArgumentException.class, () -> categoryStats.stats(new double[]{100, 50}));
+    }
+
+    @Test
+    void testWritesDuringRebuildAreReplayed() {
+        categoryStats.rebuild(loader -> {
+            loader.add(1L, "Books", 10.0);
+            categoryStats.put(2L, "Games", 60.0);
+            categoryStats.remove(1L);
+        });
+
+        Map<String, CategoryStats> stats = categoryStats.stats(null);
+        assertEquals(List.of("Games"), List.copyOf(stats.keySet()));
+        assertEquals(60.0, stats.get("Games").sum());
+    }
+
+    @Test
+    void testRejectsUnorderedBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new CategoryStatsIndex(new double[]{50, 10}));
+    }
+}
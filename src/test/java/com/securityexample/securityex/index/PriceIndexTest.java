@@ -0,0 +1,188 @@
+package com.securityexample.securityex.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceIndexTest {
+
+    private PriceIndex priceIndex;
+
+    @BeforeEach
+    void setUp() {
+        priceIndex = new PriceIndex();
+    }
+
+    @Test
+    void testNotReadyUntilRebuilt() {
+        assertFalse(priceIndex.isReady());
+
+        priceIndex.rebuild(loader -> loader.add(1L, 10.0, 0L));
+
+        assertTrue(priceIndex.isReady());
+        assertEquals(1, priceIndex.size());
+    }
+
+    @Test
+    void testRebuildSortsByPriceThenId() {
+        priceIndex.rebuild(loader -> {
+            loader.add(3L, 20.0, 0L);
+            loader.add(1L, 30.0, 0L);
+            loader.add(4L, 10.0, 0L);
+            loader.add(2L, 20.0, 0L);
+        });
+
+        assertArrayEquals(new long[]{4L, 2L, 3L, 1L}, priceIndex.ascending(10));
+        assertArrayEquals(new long[]{1L, 3L, 2L}, priceIndex.descending(3));
+    }
+
+    @Test
+    void testPutMovesExistingEntry() {
+        priceIndex.put(1L, 10.0, 0L);
+        priceIndex.put(2L, 20.0, 0L);
+        priceIndex.put(1L, 30.0, 1L);
+
+        assertArrayEquals(new long[]{2L, 1L}, priceIndex.ascending(10));
+        assertEquals(2, priceIndex.size());
+    }
+
+    @Test
+    void testOlderVersionIsIgnored() {
+        priceIndex.put(1L, 30.0, 2L);
+        priceIndex.put(2L, 20.0, 0L);
+        // The writer of version 1 finished after the writer of version 2
+        priceIndex.put(1L, 10.0, 1L);
+
+        assertArrayEquals(new long[]{2L, 1L}, priceIndex.ascending(10));
+        assertArrayEquals(new long[]{1L}, priceIndex.range(30.0, 30.0, 10));
+    }
+
+    @Test
+    void testWriteOlderThanRebuildIsIgnored() {
+        priceIndex.rebuild(loader -> {
+            loader.add(1L, 30.0, 2L);
+            // Applied after its commit, which the rebuild's snapshot already includes a later one of
+            priceIndex.put(1L, 10.0, 1L);
+        });
+
+        assertArrayEquals(new long[]{1L}, priceIndex.range(30.0, 30.0, 10));
+    }
+
+    @Test
+    void testPutAllMergesBatch() {
+        priceIndex.put(1L, 10.0, 0L);
+        priceIndex.put(2L, 20.0, 0L);
+        priceIndex.put(3L, 30.0, 5L);
+
+        priceIndex.putAll(List.of(
+                new PriceIndex.Entry(4L, 15.0, 0L),
+                new PriceIndex.Entry(1L, 40.0, 1L),
+                new PriceIndex.Entry(3L, 5.0, 4L),
+                new PriceIndex.Entry(5L, 20.0, 0L),
+                new PriceIndex.Entry(5L, 1.0, 1L)));
+
+        assertArrayEquals(new long[]{5L, 4L, 2L, 3L, 1L}, priceIndex.ascending(10));
+        assertEquals(5, priceIndex.size());
+    }
+
+    @Test
+    void testRemove() {
+        priceIndex.put(1L, 10.0, 0L);
+        priceIndex.put(2L, 20.0, 0L);
+        priceIndex.remove(1L);
+        priceIndex.remove(99L);
+
+        assertArrayEquals(new long[]{2L}, priceIndex.ascending(10));
+    }
+
+    @Test
+    void testSeekAfterAndBefore() {
+        priceIndex.rebuild(loader -> {
+            loader.add(1L, 10.0, 0L);
+            loader.add(2L, 20.0, 0L);
+            loader.add(3L, 20.0, 0L);
+            loader.add(4L, 30.0, 0L);
+        });
+
+        assertArrayEquals(new long[]{3L, 4L}, priceIndex.ascendingAfter(20.0, 2L, 10));
+        assertArrayEquals(new long[]{2L, 1L}, priceIndex.descendingBefore(20.0, 3L, 10));
+        assertArrayEquals(new long[0], priceIndex.ascendingAfter(30.0, 4L, 10));
+    }
+
+    @Test
+    void testRangeIsInclusive() {
+        priceIndex.rebuild(loader -> {
+            loader.add(1L, 10.0, 0L);
+            loader.add(2L, 20.0, 0L);
+            loader.add(3L, 30.0, 0L);
+            loader.add(4L, 40.0, 0L);
+        });
+
+        assertArrayEquals(new long[]{2L, 3L}, priceIndex.range(20.0, 30.0, 10));
+        assertArrayEquals(new long[]{2L}, priceIndex.range(20.0, 30.0, 1));
+        assertArrayEquals(new long[0], priceIndex.range(31.0, 39.0, 10));
+    }
+
+    @Test
+    void testWritesDuringRebuildAreKept() {
+        priceIndex.rebuild(loader -> {
+            loader.add(1L, 10.0, 0L);
+            loader.add(2L, 20.0, 0L);
+            priceIndex.put(3L, 5.0, 0L);
+            priceIndex.remove(2L);
+        });
+
+        assertArrayEquals(new long[]{3L, 1L}, priceIndex.ascending(10));
+    }
+
+    @Test
+    void testPutAllMatchesSinglePuts() {
+        Random random = new Random(7);
+        PriceIndex single = new PriceIndex();
+        for (int round = 0; round < 50; round++) {
+            List<PriceIndex.Entry> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                PriceIndex.Entry entry = new PriceIndex.Entry(1 + random.nextInt(500), random.nextInt(100), round * 100 + i);
+                batch.add(entry);
+                single.put(entry.id(), entry.price(), entry.version());
+            }
+            priceIndex.putAll(batch);
+        }
+
+        assertArrayEquals(single.ascending(Integer.MAX_VALUE), priceIndex.ascending(Integer.MAX_VALUE));
+        assertArrayEquals(single.range(20.0, 40.0, Integer.MAX_VALUE), priceIndex.range(20.0, 40.0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testMatchesSortedOrderUnderRandomWrites() {
+        Random random = new Random(42);
+        double[] expected = new double[2001];
+        Arrays.fill(expected, Double.NaN);
+        for (int i = 0; i < 20000; i++) {
+            long id = 1 + random.nextInt(2000);
+            if (random.nextInt(4) == 0) {
+                priceIndex.remove(id);
+                expected[(int) id] = Double.NaN;
+            } else {
+                double price = random.nextInt(100);
+                priceIndex.put(id, price, i);
+                expected[(int) id] = price;
+            }
+        }
+
+        long[] ids = priceIndex.ascending(Integer.MAX_VALUE);
+        long present = Arrays.stream(expected).filter(price -> !Double.isNaN(price)).count();
+        assertEquals(present, ids.length);
+        for (int i = 1; i < ids.length; i++) {
+            double previous = expected[(int) ids[i - 1]];
+            double current = expected[(int) ids[i]];
+            assertTrue(previous < current || (previous == current && ids[i - 1] < ids[i]));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.securityexample.securityex.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new SearchIndex();
+        searchIndex.rebuild(loader -> {
+            loader.add(1L, "Wireless Mouse", "Ergonomic mouse with a USB receiver");
+            loader.add(2L, "USB Keyboard", "Mechanical keyboard, works with any mouse");
+            loader.add(3L, "Monitor", "27 inch monitor with USB-C hub");
+        });
+    }
+
+    @Test
+    void testTokenize() {
+        assertEquals(List.of("usb", "c", "hub", "27"), SearchIndex.tokenize("USB-C hub, 27!"));
+        assertEquals(List.of(), SearchIndex.tokenize(null));
+    }
+
+    @Test
+    void testNameMatchesRankAboveDescriptionMatches() {
+        SearchIndex.Hits hits = searchIndex.search("mouse", 0, 10);
+
+        assertEquals(2, hits.total());
+        assertArrayEquals(new long[]{1L, 2L}, hits.ids());
+    }
+
+    @Test
+    void testDocumentsMatchingMoreTermsRankFirst() {
+        SearchIndex.Hits hits = searchIndex.search("usb keyboard", 0, 10);
+
+        assertEquals(3, hits.total());
+        assertEquals(2L, hits.ids()[0]);
+    }
+
+    @Test
+    void testPaging() {
+        SearchIndex.Hits hits = searchIndex.search("usb", 1, 1);
+
+        assertEquals(3, hits.total());
+        assertEquals(1, hits.ids().length);
+        assertEquals(0, searchIndex.search("usb", 5, 10).ids().length);
+    }
+
+    @Test
+    void testUpdateAndRemove() {
+        searchIndex.put(3L, "Curved Monitor", "Gaming monitor");
+        assertEquals(2, searchIndex.search("usb", 0, 10).total());
+
+        searchIndex.remove(1L);
+        assertArrayEquals(new long[]{2L}, searchIndex.search("mouse", 0, 10).ids());
+    }
+
+    @Test
+    void testSuggestPrefersCommonTerms() {
+        searchIndex.put(4L, "Mousepad", "Large mousepad");
+
+        assertEquals(List.of("mouse", "mousepad"), searchIndex.suggest("Mou", 10));
+        assertEquals(List.of("mouse"), searchIndex.suggest("mou", 1));
+        assertEquals(List.of(), searchIndex.suggest(" ", 10));
+    }
+}
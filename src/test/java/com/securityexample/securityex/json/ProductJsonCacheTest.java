@@ -0,0 +1,86 @@
+package com.securityexample.securityex.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securityexample.securityex.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ProductJsonCache jsonCache;
+
+    @BeforeEach
+    void setUp() {
+        jsonCache = new ProductJsonCache(objectMapper, DataSize.ofMegabytes(1), DataSize.ofKilobytes(1));
+    }
+
+    @Test
+    void testReusesBytesUntilVersionChanges() throws Exception {
+        Product product = product(1L, "Description");
+
+        byte[] json = jsonCache.json(product);
+
+        assertSame(json, jsonCache.json(product));
+        assertEquals(objectMapper.writeValueAsString(product), new String(json, StandardCharsets.UTF_8));
+
+        product.setName("Renamed");
+        product.setVersion(1L);
+        byte[] updated = jsonCache.json(product);
+        assertNotSame(json, updated);
+        assertTrue(new String(updated, StandardCharsets.UTF_8).contains("Renamed"));
+    }
+
+    @Test
+    void testInvalidateDropsTheEntry() {
+        Product product = product(1L, "Description");
+        byte[] json = jsonCache.json(product);
+
+        jsonCache.invalidate(1L);
+
+        assertNotSame(json, jsonCache.json(product));
+    }
+
+    @Test
+    void testGzipsOnlyLargeProducts() throws Exception {
+        assertNull(jsonCache.gzip(product(1L, "Short")));
+
+        Product large = product(2L, "A long description. ".repeat(100));
+        byte[] gzip = jsonCache.gzip(large);
+
+        assertNotNull(gzip);
+        assertTrue(gzip.length < jsonCache.json(large).length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(jsonCache.json(large), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testArrayIsWrittenAsJsonArray() throws Exception {
+        List<Product> products = List.of(product(1L, "First"), product(2L, "Second"));
+        ProductJsonArray array = jsonCache.array(products);
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        new ProductJsonArrayHttpMessageConverter().write(array, null, message);
+
+        assertEquals(objectMapper.writeValueAsString(products), message.getBodyAsString());
+        assertEquals(message.getBodyAsBytes().length, array.contentLength());
+        assertEquals(2, new ProductJsonArray(List.of()).contentLength());
+    }
+
+    private static Product product(long id, String description) {
+        Product product = new Product("Product" + id, "Category", 10.0 * id, description);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,205 @@
+package com.securityexample.securityex.load;
+
+import com.securityexample.securityex.SecurityexApplication;
+import com.securityexample.securityex.bulk.BulkItemResult;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Side-by-side load comparison of the platform-thread and virtual-thread execution modes, skipped in
+ * the regular build. Run with {@code mvn test -Dtest=ThreadingModeComparisonTest -Dproducts.load=true}.
+ * <p>
+ * Boots the application twice on an in-memory H2 database whose statements are slowed down to a
+ * MySQL-like round trip, then drives a closed-loop mix of database-bound lookups by name and
+ * cache-served lookups by id. The connection pool bounds the database-bound rate in both modes; the
+ * difference shows in the cached reads, which queue behind blocked Tomcat threads on the platform pool
+ * but keep flowing on virtual threads.
+ */
+@EnabledIfSystemProperty(named = "products.load", matches = "true")
+class ThreadingModeComparisonTest {
+
+    private static final int PRODUCTS = 1_000;
+    private static final int CLIENTS = 400;
+    private static final long STATEMENT_LATENCY_MILLIS = 20;
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    @Test
+    void compareThreadingModes() throws Exception {
+        Map<String, Stats> platform = run(false);
+        Map<String, Stats> virtual = run(true);
+
+        System.out.printf("%-9s %-9s %10s %10s %10s %8s%n", "mode", "endpoint", "req/s", "p50 ms", "p99 ms", "errors");
+        platform.forEach((endpoint, stats) -> stats.print("platform", endpoint));
+        virtual.forEach((endpoint, stats) -> stats.print("virtual", endpoint));
+        assertTrue(platform.values().stream().allMatch(stats -> stats.count() > 0));
+        assertTrue(virtual.values().stream().allMatch(stats -> stats.count() > 0));
+    }
+
+    private Map<String, Stats> run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SecurityexApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new SlowStatements()))
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.com.securityexample.securityex=WARN",
+                        "--spring.threads.virtual.enabled=" + virtualThreads)) {
+            long[] ids = seed(context.getBean(ProductServiceImpl.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            return drive("http://localhost:" + port + "/api/v1/products", ids);
+        }
+    }
+
+    private static long[] seed(ProductServiceImpl service) {
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product" + i, "Category" + (i % 10), 1 + i % 100, "Description " + i));
+        }
+        return service.createProducts(products).items().stream().mapToLong(BulkItemResult::id).toArray();
+    }
+
+    private static Map<String, Stats> drive(String baseUrl, long[] ids) throws InterruptedException {
+        Map<String, Stats> results = new LinkedHashMap<>();
+        results.put("by-name", new Stats());
+        results.put("by-id", new Stats());
+        long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        long measureUntil = measureFrom + MEASUREMENT.toNanos();
+
+        // Declared first so it is closed last, after the executor has waited for every client
+        try (HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < measureUntil) {
+                        boolean byName = random.nextBoolean();
+                        String path = byName ? "/name/Product" + random.nextInt(PRODUCTS) : "/" + ids[random.nextInt(ids.length)];
+                        long start = System.nanoTime();
+                        boolean ok;
+                        try {
+                            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+                            ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (Exception ex) {
+                            ok = false;
+                        }
+                        if (start >= measureFrom) {
+                            results.get(byName ? "by-name" : "by-id").record(System.nanoTime() - start, ok);
+                        }
+                    }
+                });
+            }
+        }
+        return results;
+    }
+
+    private static final class Stats {
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long nanos, boolean ok) {
+            if (ok) {
+                latencies.add(nanos);
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+
+        int count() {
+            return latencies.size();
+        }
+
+        void print(String mode, String endpoint) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            System.out.printf("%-9s %-9s %10.0f %10.1f %10.1f %8d%n", mode, endpoint,
+                    sorted.length / (double) MEASUREMENT.toSeconds(), percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    errors.get());
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * quantile)] / 1e6;
+        }
+    }
+
+    /** Delays every statement execution, while the connection is held, to model a network round trip. */
+    private static final class SlowStatements implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return slow(Connection.class, super.getConnection());
+                    }
+
+                    @Override
+                    public Connection getConnection(String username, String password) throws SQLException {
+                        return slow(Connection.class, super.getConnection(username, password));
+                    }
+                };
+            }
+            return bean;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T slow(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (target instanceof Statement && method.getName().startsWith("execute")) {
+                    Thread.sleep(STATEMENT_LATENCY_MILLIS);
+                }
+                Object result = invoke(target, method, args);
+                if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    return slow((Class<Object>) method.getReturnType(), result);
+                }
+                return result;
+            });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
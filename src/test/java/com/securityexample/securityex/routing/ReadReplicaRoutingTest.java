@@ -0,0 +1,167 @@
+package com.securityexample.securityex.routing;
+
+import com.securityexample.securityex.cache.ProductCache;
+import com.securityexample.securityex.entity.Product;
+import com.securityexample.securityex.exception.ProductNotFoundException;
+import com.securityexample.securityex.service.ProductServiceImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routes between two embedded databases standing in for a primary and its replica. Nothing copies
+ * rows from one to the other, so where a row is found shows which database served the read.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "products.datasource.replicas[0].url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "products.datasource.replicas[0].username=sa",
+        "products.datasource.replicas[0].password=",
+        "products.datasource.read-your-writes=5s",
+        "products.access-log.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private ProductServiceImpl service;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Before the context starts, so reads routed to the replica find the table from the first one
+    @BeforeAll
+    static void createReplicaSchema() {
+        replica.execute("CREATE TABLE IF NOT EXISTS products (id BIGINT PRIMARY KEY, name VARCHAR(255), "
+                + "category VARCHAR(255), price DOUBLE NOT NULL, description VARCHAR(255), version BIGINT NOT NULL)");
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary.update("DELETE FROM products");
+        replica.update("DELETE FROM products");
+    }
+
+    @Test
+    void testReadOnlyReadsGoToReplica() {
+        replica.update("INSERT INTO products VALUES (1000, 'Replica only', 'Books', 10.0, 'Desc', 0)");
+
+        List<Product> products = service.getProductByName("Replica only");
+
+        assertEquals(1, products.size());
+        assertEquals(1000L, products.get(0).getId());
+        assertEquals(0, primary.queryForObject("SELECT COUNT(*) FROM products", Integer.class));
+    }
+
+    @Test
+    void testWritesGoToPrimary() {
+        Product saved = service.saveProduct(new Product("Written", "Books", 10.0, "Desc"));
+
+        assertEquals(1, primary.queryForObject("SELECT COUNT(*) FROM products WHERE name = 'Written'", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM products", Integer.class));
+        assertThrows(ProductNotFoundException.class, () -> service.getProductByName("Written"));
+
+        // Cache misses load from the primary, so a lagging replica is never cached
+        productCache.invalidate(saved.getId());
+        assertEquals("Written", service.getProductById(saved.getId()).getName());
+    }
+
+    @Test
+    void testReadYourWritesKeepsWriterOnPrimary() throws Exception {
+        MvcResult created = mockMvc.perform(post("/api/v1/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Fresh\",\"category\":\"Books\",\"price\":10.0,\"description\":\"Desc\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Cookie cookie = created.getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertEquals("/api/v1/products", cookie.getPath());
+
+        mockMvc.perform(get("/api/v1/products/name/Fresh").cookie(cookie))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/products/name/Fresh"))
+                .andExpect(status().isNotFound());
+        // Further out than one window, so not issued by this service
+        mockMvc.perform(get("/api/v1/products/name/Fresh")
+                        .cookie(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(Long.MAX_VALUE))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testTaggedListingsReadFromPrimary() throws Exception {
+        primary.update("INSERT INTO products (id, name, category, price, description, version) "
+                + "VALUES (1000, 'Primary only', 'Books', 10.0, 'Desc', 0)");
+
+        mockMvc.perform(get("/api/v1/products").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$[0].name").value("Primary only"));
+    }
+
+    @Test
+    void testIndexRebuildReadsFromPrimary() {
+        primary.update("INSERT INTO products (id, name, category, price, description, version) "
+                + "VALUES (1000, 'Primary only', 'Books', 10.0, 'Desc', 0)");
+
+        service.rebuildIndexes();
+
+        assertArrayEquals(new long[]{1000L}, service.getProductIdsByCategory("Books"));
+        assertEquals(1, service.getCategoryStats(null).get("Books").count());
+    }
+
+    @Test
+    void testReplicaPoolsReportPoolMetrics() {
+        // Any read-only read opens the replica pool
+        assertThrows(ProductNotFoundException.class, () -> service.getProductByName("Nothing"));
+
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica-0").gauge());
+    }
+
+    @Test
+    void testRoundRobinOverReplicas() {
+        List<HikariDataSource> replicas = List.of(new HikariDataSource(), new HikariDataSource());
+        ReadWriteRoutingDataSource router =
+                new ReadWriteRoutingDataSource(new DriverManagerDataSource(), replicas, ReplicaSelection.ROUND_ROBIN);
+
+        assertEquals(0, router.selectReplica());
+        assertEquals(1, router.selectReplica());
+        assertEquals(0, router.selectReplica());
+    }
+}
@@ -1,17 +1,53 @@
 package com.securityexample.securityex.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.securityexample.securityex.bulk.BulkItemStatus;
+import com.securityexample.securityex.bulk.BulkResult;
+import com.securityexample.securityex.bulk.MultiGetResult;
+import com.securityexample.securityex.cache.CatalogVersions;
+import com.securityexample.securityex.cache.ProductCache;
+import com.securityexample.securityex.changes.ProductChangeLog;
+import com.securityexample.securityex.coalesce.ProductIdLoader;
+import com.securityexample.securityex.coalesce.ReadCoalescer;
 import com.securityexample.securityex.entity.Product;
 import com.securityexample.securityex.exception.ProductNotFoundException;
+import com.securityexample.securityex.exception.ProductVersionConflictException;
+import com.securityexample.securityex.index.CategoryIndex;
+import com.securityexample.securityex.index.CategoryStatsIndex;
+import com.securityexample.securityex.index.PriceIndex;
+import com.securityexample.securityex.index.SearchIndex;
+import com.securityexample.securityex.json.ProductJsonCache;
+import com.securityexample.securityex.pagination.CursorPage;
+import com.securityexample.securityex.pagination.ProductCursor;
+import com.securityexample.securityex.pagination.SearchPage;
+import com.securityexample.securityex.patch.ProductPatch;
+import com.securityexample.securityex.projection.ProductField;
 import com.securityexample.securityex.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,12 +57,44 @@ class ProductServiceImplTest {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ProductBatchWriter batchWriter;
+
+    @Mock
+    private ProductChangeLog changeLog;
+
+    private PriceIndex priceIndex;
+
+    private CategoryIndex categoryIndex;
+
+    private SearchIndex searchIndex;
+
+    private CategoryStatsIndex categoryStats;
+
+    private CatalogVersions catalogVersions;
+
+    private ProductJsonCache jsonCache;
+
     private ProductServiceImpl productService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ProductCache productCache = new ProductCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+        priceIndex = new PriceIndex();
+        categoryIndex = new CategoryIndex();
+        searchIndex = new SearchIndex();
+        categoryStats = new CategoryStatsIndex(new double[]{50, 100});
+        catalogVersions = new CatalogVersions();
+        jsonCache = new ProductJsonCache(new ObjectMapper(), DataSize.ofMegabytes(1), DataSize.ofKilobytes(1));
+        productService = new ProductServiceImpl(productRepository, entityManager, productCache, priceIndex, categoryIndex,
+                searchIndex, categoryStats, batchWriter, catalogVersions, jsonCache, changeLog,
+                new ReadCoalescer(TransactionOperations.withoutTransaction(), Duration.ofSeconds(5)),
+                new ProductIdLoader(productRepository, Duration.ZERO, 100), TransactionOperations.withoutTransaction());
+        when(batchWriter.batchSize()).thenReturn(2);
     }
 
     @Test
@@ -56,6 +124,81 @@ class ProductServiceImplTest {
         assertThrows(ProductNotFoundException.class, () -> productService.getProductById(1L));
     }
 
+    @Test
+    void testGetProductByIdIsServedFromCache() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        productService.getProductById(1L);
+        Product cachedProduct = productService.getProductById(1L);
+
+        assertSame(product, cachedProduct);
+        verify(productRepository, times(1)).findById(1L);
+        assertEquals(1, productService.getCacheStats().hitCount());
+        assertEquals(1, productService.getCacheStats().missCount());
+    }
+
+    @Test
+    void testGetProductsByIdsKeepsRequestOrderAndReportsMissing() {
+        Product first = new Product("First", "Category", 10.0, "Description");
+        first.setId(1L);
+        Product second = new Product("Second", "Category", 20.0, "Description");
+        second.setId(2L);
+        when(productRepository.findById(2L)).thenReturn(Optional.of(second));
+        productService.getProductById(2L);
+        when(productRepository.findAllById(any())).thenReturn(List.of(first));
+
+        MultiGetResult result = productService.getProductsByIds(List.of(2L, 3L, 1L, 2L));
+
+        assertEquals(List.of(second, first), result.products());
+        assertEquals(List.of(3L), result.missing());
+        // Only the ids not already cached are queried, in one IN query
+        verify(productRepository).findAllById(argThat(ids -> Set.copyOf((Collection<?>) ids).equals(Set.of(1L, 3L))));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByIds(List.of(1L, 0L)));
+    }
+
+    @Test
+    void testGetProductByIdCachesMissingProducts() {
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductById(1L));
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductById(1L));
+
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testSaveProductInvalidatesCache() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductById(1L));
+
+        when(productRepository.save(product)).thenReturn(product);
+        productService.saveProduct(product);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        assertSame(product, productService.getProductById(1L));
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testDeleteProductInvalidatesCache() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        productService.getProductById(1L);
+        when(productRepository.deleteProductById(1L)).thenReturn(1);
+        productService.deleteProduct(1L);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductById(1L));
+    }
+
     @Test
     void testGetProductByName() {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -96,6 +239,166 @@ class ProductServiceImplTest {
         assertThrows(ProductNotFoundException.class, () -> productService.getProductsByCategory("NonExistentCategory"));
     }
 
+    @Test
+    void testGetProductsByCategoryUsesCategoryIndex() {
+        Product first = new Product("First", "Category", 100.0, "Description");
+        first.setId(1L);
+        Product third = new Product("Third", "Category", 100.0, "Description");
+        third.setId(3L);
+
+        rebuildIndexes(new Object[]{1L, "Category"}, new Object[]{2L, "Other"}, new Object[]{3L, "Category"});
+        when(productRepository.findAllById(List.of(1L, 3L))).thenReturn(List.of(third, first));
+
+        List<Product> foundProducts = productService.getProductsByCategory("Category");
+
+        assertEquals(List.of(first, third), foundProducts);
+        verify(productRepository, never()).findProductByCategory("Category");
+    }
+
+    @Test
+    void testGetProductsInAnyCategory() {
+        Product first = new Product("First", "Category", 100.0, "Description");
+        first.setId(1L);
+        Product second = new Product("Second", "Other", 100.0, "Description");
+        second.setId(2L);
+
+        rebuildIndexes(new Object[]{1L, "Category"}, new Object[]{2L, "Other"}, new Object[]{3L, "Third"});
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+
+        assertEquals(List.of(first, second), productService.getProductsInAnyCategory(List.of("Category", "Other")));
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductsInAnyCategory(List.of("Missing")));
+    }
+
+    @Test
+    void testGetCategoryCountsFromIndex() {
+        rebuildIndexes(new Object[]{1L, "Category"}, new Object[]{2L, "Other"}, new Object[]{3L, "Category"});
+
+        assertEquals(Map.of("Category", 2L, "Other", 1L), productService.getCategoryCounts());
+        assertArrayEquals(new long[]{1L, 3L}, productService.getProductIdsByCategory("Category"));
+        verify(productRepository, never()).countByCategory();
+    }
+
+    @Test
+    void testGetCategoryCountsFallsBackToDatabase() {
+        when(productRepository.countByCategory()).thenReturn(List.<Object[]>of(new Object[]{"Category", 5L}));
+
+        assertEquals(Map.of("Category", 5L), productService.getCategoryCounts());
+    }
+
+    @Test
+    void testCategoryIndexFollowsWrites() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+        Product moved = new Product("Product", "Other", 100.0, "Description");
+        moved.setId(1L);
+        rebuildIndexes();
+
+        when(productRepository.save(any(Product.class))).thenReturn(product);
+        productService.saveProduct(product);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.save(any(Product.class))).thenReturn(moved);
+        productService.updateProduct(1L, moved);
+
+        assertEquals(Map.of("Other", 1L), productService.getCategoryCounts());
+    }
+
+    private void rebuildIndexes(Object[]... categoryRows) {
+        when(productRepository.streamIdAndPrice()).thenReturn(Stream.empty());
+        when(productRepository.streamIdAndCategory()).thenReturn(Stream.of(categoryRows));
+        when(productRepository.streamIdAndText()).thenReturn(Stream.empty());
+        productService.rebuildIndexes();
+    }
+
+    @Test
+    void testReconcileCategoryStatsRebuildsOnDrift() {
+        rebuildIndexes();
+        Product product = new Product("Product", "Books", 80.0, "Description");
+        product.setId(1L);
+        when(productRepository.save(product)).thenReturn(product);
+        productService.saveProduct(product);
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"Books", 1L, 80.0, 80.0, 80.0});
+        when(productRepository.aggregateByCategory()).thenReturn(rows);
+        assertFalse(productService.reconcileCategoryStats());
+
+        // A second product written by another instance
+        rows.set(0, new Object[]{"Books", 2L, 100.0, 20.0, 80.0});
+        when(productRepository.streamIdCategoryAndPrice())
+                .thenReturn(Stream.of(new Object[]{1L, "Books", 80.0}, new Object[]{2L, "Books", 20.0}));
+        String catalogTag = catalogVersions.catalogTag();
+
+        // The first mismatch could be a write not applied in memory yet
+        assertFalse(productService.reconcileCategoryStats());
+        assertEquals(1, productService.getCategoryStats(null).get("Books").count());
+        assertTrue(productService.reconcileCategoryStats());
+        assertEquals(2, productService.getCategoryStats(null).get("Books").count());
+        assertEquals(20.0, productService.getCategoryStats(null).get("Books").min());
+        assertNotEquals(catalogTag, catalogVersions.catalogTag());
+    }
+
+    @Test
+    void testReconcileCategoryStatsIgnoresMismatchSeenOnce() {
+        rebuildIndexes();
+        Product product = new Product("Product", "Books", 80.0, "Description");
+        product.setId(1L);
+        when(productRepository.save(product)).thenReturn(product);
+        productService.saveProduct(product);
+
+        // A write committed in the database but not applied here when the first check ran
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"Books", 2L, 100.0, 20.0, 80.0});
+        when(productRepository.aggregateByCategory()).thenReturn(rows);
+        assertFalse(productService.reconcileCategoryStats());
+
+        rows.set(0, new Object[]{"Books", 1L, 80.0, 80.0, 80.0});
+        assertFalse(productService.reconcileCategoryStats());
+        rows.set(0, new Object[]{"Books", 2L, 100.0, 20.0, 80.0});
+        assertFalse(productService.reconcileCategoryStats());
+        assertEquals(1, productService.getCategoryStats(null).get("Books").count());
+    }
+
+    @Test
+    void testSearchProductsUsesSearchIndex() {
+        Product mouse = new Product("Wireless Mouse", "Category", 20.0, "Ergonomic mouse");
+        mouse.setId(1L);
+        Product keyboard = new Product("Keyboard", "Category", 50.0, "Works with any mouse");
+        keyboard.setId(2L);
+
+        rebuildIndexes();
+        when(productRepository.save(any(Product.class))).thenReturn(mouse, keyboard);
+        productService.saveProduct(mouse);
+        productService.saveProduct(keyboard);
+        when(productRepository.findAllById(List.of(2L))).thenReturn(List.of(keyboard));
+
+        SearchPage<Product> results = productService.searchProducts("mouse", 1, 1);
+
+        assertEquals(2, results.total());
+        assertEquals(List.of(keyboard), results.items());
+        assertEquals(List.of("wireless", "with", "works"), productService.suggestSearchTerms("w", 10));
+        verify(productRepository, never()).findByText(anyString(), any());
+    }
+
+    @Test
+    void testSearchProductsFallsBackToDatabaseBeforeIndexIsBuilt() {
+        Product product = new Product("Wireless Mouse", "Category", 20.0, "Ergonomic mouse");
+
+        when(productRepository.findByText("mouse", PageRequest.of(0, 20)))
+                .thenReturn(new PageImpl<>(List.of(product), PageRequest.of(0, 20), 1));
+
+        SearchPage<Product> results = productService.searchProducts(" mouse ", 0, 20);
+
+        assertEquals(1, results.total());
+        assertEquals(List.of(product), results.items());
+    }
+
+    @Test
+    void testSearchProductsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProducts(" ", 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("mouse", -1, 20));
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("mouse", 0, 0));
+    }
+
     @Test
     void testFindAllProductsByPriceAsc() {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -136,6 +439,118 @@ class ProductServiceImplTest {
         assertThrows(ProductNotFoundException.class, () -> productService.findAllProductsByPriceDesc());
     }
 
+    @Test
+    void testFindAllProductsByPriceAscUsesPriceIndex() {
+        Product cheap = new Product("Cheap", "Category", 10.0, "Description");
+        cheap.setId(1L);
+        Product expensive = new Product("Expensive", "Category", 200.0, "Description");
+        expensive.setId(2L);
+
+        when(productRepository.streamIdAndPrice()).thenReturn(Stream.of(new Object[]{1L, 10.0, 0L}, new Object[]{2L, 200.0, 0L}));
+        when(productRepository.streamIdAndCategory()).thenReturn(Stream.empty());
+        when(productRepository.streamIdAndText()).thenReturn(Stream.empty());
+        productService.rebuildIndexes();
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(expensive, cheap));
+
+        List<Product> foundProducts = productService.findAllProductsByPriceAsc();
+
+        assertEquals(List.of(cheap, expensive), foundProducts);
+        verify(productRepository, never()).findAllProductsByPriceAsc();
+    }
+
+    @Test
+    void testPriceIndexFollowsWrites() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
+        rebuildIndexes();
+
+        when(productRepository.save(product)).thenReturn(product);
+        productService.saveProduct(product);
+        assertArrayEquals(new long[]{1L}, priceIndex.range(100.0, 100.0, 10));
+
+        when(productRepository.deleteProductById(1L)).thenReturn(1);
+        productService.deleteProduct(1L);
+        assertEquals(0, priceIndex.size());
+    }
+
+    @Test
+    void testGetProductsByPriceRangeFallsBackToDatabaseBeforeIndexIsBuilt() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+
+        when(productRepository.findByPriceBetweenOrderByPriceAscIdAsc(50.0, 150.0, Limit.of(10))).thenReturn(List.of(product));
+
+        List<Product> foundProducts = productService.getProductsByPriceRange(50.0, 150.0, 10);
+
+        assertEquals(List.of(product), foundProducts);
+    }
+
+    @Test
+    void testGetProductsByPriceRangeInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByPriceRange(10.0, 5.0, 10));
+    }
+
+    @Test
+    void testGetProductsPageByPriceDescUsesPriceIndex() {
+        Product middle = new Product("Middle", "Category", 20.0, "Description");
+        middle.setId(2L);
+        Product cheap = new Product("Cheap", "Category", 10.0, "Description");
+        cheap.setId(1L);
+
+        when(productRepository.streamIdAndPrice())
+                .thenReturn(Stream.of(new Object[]{1L, 10.0, 0L}, new Object[]{2L, 20.0, 0L}, new Object[]{3L, 30.0, 0L}));
+        when(productRepository.streamIdAndCategory()).thenReturn(Stream.empty());
+        when(productRepository.streamIdAndText()).thenReturn(Stream.empty());
+        productService.rebuildIndexes();
+        when(productRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(cheap, middle));
+
+        CursorPage<Product> page = productService.getProductsPageByPriceDesc(new ProductCursor(30.0, 3L).encode(), 1);
+
+        assertEquals(List.of(middle), page.items());
+        assertEquals(new ProductCursor(20.0, 2L), ProductCursor.decode(page.next()));
+    }
+
+    @Test
+    void testGetProductsPageByPriceAscWithFieldsSelectsPriceOnlyForTheCursor() {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID, ProductField.NAME);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            rows.add(new HashMap<>(Map.of("id", id, "name", "Product" + id, "price", 10.0 * id)));
+        }
+
+        when(productRepository.findFields(eq(EnumSet.of(ProductField.ID, ProductField.NAME, ProductField.PRICE)), isNull(),
+                eq(Sort.by("price", "id")), eq(Limit.of(3)))).thenReturn(rows);
+
+        CursorPage<Map<String, Object>> page = productService.getProductsPageByPriceAsc(null, 2, fields);
+
+        assertEquals(List.of(Map.of("id", 1L, "name", "Product1"), Map.of("id", 2L, "name", "Product2")), page.items());
+        assertEquals(new ProductCursor(20.0, 2L), ProductCursor.decode(page.next()));
+    }
+
+    @Test
+    void testGetProductsByCategoryWithFieldsKeepsIndexOrder() {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID, ProductField.PRICE);
+        when(productRepository.streamIdAndPrice()).thenReturn(Stream.empty());
+        when(productRepository.streamIdAndCategory())
+                .thenReturn(Stream.of(new Object[]{2L, "Category"}, new Object[]{1L, "Category"}, new Object[]{3L, "Other"}));
+        when(productRepository.streamIdAndText()).thenReturn(Stream.empty());
+        productService.rebuildIndexes();
+        when(productRepository.findFields(eq(fields), any(), eq(Sort.unsorted()), eq(Limit.unlimited())))
+                .thenReturn(List.of(Map.of("id", 2L, "price", 20.0), Map.of("id", 1L, "price", 10.0)));
+
+        List<Map<String, Object>> rows = productService.getProductsByCategory("Category", fields);
+
+        assertEquals(List.of(1L, 2L), rows.stream().map(row -> row.get("id")).toList());
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void testGetAllProductsWithFieldsNotFound() {
+        Set<ProductField> fields = EnumSet.of(ProductField.ID);
+        when(productRepository.findFields(eq(fields), isNull(), any(), any())).thenReturn(List.of());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.getAllProducts(fields));
+    }
+
     @Test
     void testGetAllProducts() {
         Product product = new Product("Product", "Category", 100.0, "Description");
@@ -156,9 +571,106 @@ class ProductServiceImplTest {
         assertThrows(ProductNotFoundException.class, () -> productService.getAllProducts());
     }
 
+    @Test
+    void testGetProductsPage() {
+        Product first = new Product("First", "Category", 100.0, "Description");
+        first.setId(1L);
+        Product second = new Product("Second", "Category", 50.0, "Description");
+        second.setId(2L);
+        Product third = new Product("Third", "Category", 75.0, "Description");
+        third.setId(3L);
+
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(List.of(first, second, third));
+
+        CursorPage<Product> page = productService.getProductsPage(null, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals(2L, ProductCursor.decode(page.next()).id());
+    }
+
+    @Test
+    void testGetProductsPageLastPage() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(3L);
+        String cursor = new ProductCursor(0, 2L).encode();
+
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3))).thenReturn(List.of(product));
+
+        CursorPage<Product> page = productService.getProductsPage(cursor, 2);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.next());
+    }
+
+    @Test
+    void testGetProductsPageByPriceAscSeeksPastCursor() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(7L);
+        String cursor = new ProductCursor(99.5, 4L).encode();
+
+        when(productRepository.findPriceAscAfter(99.5, 4L, Limit.of(11))).thenReturn(List.of(product));
+
+        CursorPage<Product> page = productService.getProductsPageByPriceAsc(cursor, 10);
+
+        assertEquals(7L, page.items().get(0).getId());
+        assertNull(page.next());
+    }
+
+    @Test
+    void testGetProductsPageByPriceDescFirstPage() {
+        Product expensive = new Product("Expensive", "Category", 200.0, "Description");
+        expensive.setId(1L);
+        Product cheap = new Product("Cheap", "Category", 10.0, "Description");
+        cheap.setId(2L);
+
+        when(productRepository.findAllByOrderByPriceDescIdDesc(Limit.of(2))).thenReturn(List.of(expensive, cheap));
+
+        CursorPage<Product> page = productService.getProductsPageByPriceDesc(null, 1);
+
+        assertEquals(1, page.items().size());
+        assertEquals(new ProductCursor(200.0, 1L), ProductCursor.decode(page.next()));
+    }
+
+    @Test
+    void testGetProductsPageInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsPage("not a cursor", 10));
+    }
+
+    @Test
+    void testExportProductsDetachesEachRow() {
+        Product first = new Product("First", "Category", 100.0, "Description");
+        Product second = new Product("Second", "Category", 50.0, "Description");
+        List<Product> exported = new ArrayList<>();
+
+        when(productRepository.streamAllBy()).thenReturn(Stream.of(first, second));
+
+        long count = productService.exportProducts(exported::add);
+
+        assertEquals(2, count);
+        assertEquals(List.of(first, second), exported);
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void testExportProductsClosesStreamWhenSinkFails() {
+        boolean[] closed = {false};
+        Stream<Product> products = Stream.of(new Product("Product", "Category", 100.0, "Description"))
+                .onClose(() -> closed[0] = true);
+
+        when(productRepository.streamAllBy()).thenReturn(products);
+
+        assertThrows(IllegalStateException.class, () -> productService.exportProducts(product -> {
+            throw new IllegalStateException("client went away");
+        }));
+        assertTrue(closed[0]);
+    }
+
     @Test
     void testSaveProduct() {
         Product product = new Product("Product", "Category", 100.0, "Description");
+        product.setId(1L);
 
         when(productRepository.save(product)).thenReturn(product);
 
@@ -170,22 +682,41 @@ class ProductServiceImplTest {
 
     @Test
     void testDeleteProduct() {
-        Product product = new Product("Product", "Category", 100.0, "Description");
-        product.setId(1L);
-
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        doNothing().when(productRepository).deleteById(1L);
+        when(productRepository.deleteProductById(1L)).thenReturn(1);
 
         productService.deleteProduct(1L);
 
-        verify(productRepository).deleteById(1L);
+        verify(productRepository).deleteProductById(1L);
+        verify(productRepository, never()).findById(anyLong());
+        verify(changeLog).recordDeleted(List.of(1L));
     }
 
     @Test
     void testDeleteProductNotFound() {
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(productRepository.deleteProductById(1L)).thenReturn(0);
 
         assertThrows(ProductNotFoundException.class, () -> productService.deleteProduct(1L));
+        verifyNoInteractions(changeLog);
+    }
+
+    @Test
+    void testSaveProductRecordsCreatedOrUpdated() {
+        Product product = new Product("Product", "Category", 100.0, "Description");
+        Product saved = new Product("Product", "Category", 100.0, "Description");
+        saved.setId(1L);
+        when(productRepository.save(product)).thenReturn(saved);
+        when(productRepository.save(saved)).thenReturn(saved);
+
+        productService.saveProduct(product);
+        productService.saveProduct(saved);
+
+        verify(changeLog).recordCreated(List.of(saved));
+        verify(changeLog).recordUpdated(List.of(saved));
+    }
+
+    @Test
+    void testDeleteProductInvalidId() {
+        assertThrows(IllegalArgumentException.class, () -> productService.deleteProduct(0L));
     }
 
     @Test
@@ -205,6 +736,26 @@ class ProductServiceImplTest {
         assertEquals("Updated Category", result.getCategory());
         assertEquals(200.0, result.getPrice());
         assertEquals("Updated Description", result.getDescription());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testUpdateProductDoesNotModifyCachedInstance() {
+        Product cached = new Product("Product", "Category", 100.0, "Description");
+        cached.setId(1L);
+        Product managed = new Product("Product", "Category", 100.0, "Description");
+        managed.setId(1L);
+        Product update = new Product("Updated Product", "Category", 200.0, "Description");
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(cached), Optional.of(managed));
+        when(productRepository.save(managed)).thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L));
+        productService.getProductById(1L);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productService.updateProduct(1L, update));
+
+        assertEquals("Product", cached.getName());
+        assertEquals(100.0, cached.getPrice());
+        assertSame(cached, productService.getProductById(1L));
     }
 
     @Test
@@ -216,4 +767,154 @@ class ProductServiceImplTest {
 
         assertThrows(ProductNotFoundException.class, () -> productService.updateProduct(1L, product));
     }
+
+    @Test
+    void testPatchProductPriceUsesSingleStatement() {
+        ProductPatch patch = new ProductPatch(null, null, 120.0, null, 3L);
+        rebuildIndexes();
+
+        when(productRepository.patch(1L, 3L, patch)).thenReturn(1);
+
+        long version = productService.patchProduct(1L, patch);
+
+        assertEquals(4L, version);
+        assertArrayEquals(new long[]{1L}, priceIndex.range(120.0, 120.0, 10));
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).save(any());
+        verify(changeLog).recordPatched(1L, 4L, patch);
+    }
+
+    @Test
+    void testPatchProductCategoryBumpsBothCategories() {
+        ProductPatch patch = new ProductPatch(null, "Garden", null, null, 3L);
+        rebuildIndexes(new Object[]{1L, "Tools"}, new Object[]{2L, "Books"});
+        String toolsTag = catalogVersions.categoryTag("Tools");
+        String gardenTag = catalogVersions.categoryTag("Garden");
+        String booksTag = catalogVersions.categoryTag("Books");
+
+        when(productRepository.patch(1L, 3L, patch)).thenReturn(1);
+        productService.patchProduct(1L, patch);
+
+        assertNotEquals(toolsTag, catalogVersions.categoryTag("Tools"));
+        assertNotEquals(gardenTag, catalogVersions.categoryTag("Garden"));
+        assertEquals(booksTag, catalogVersions.categoryTag("Books"));
+    }
+
+    @Test
+    void testDeleteProductBumpsCatalogAndCategoryTags() {
+        rebuildIndexes(new Object[]{1L, "Tools"});
+        String catalogTag = catalogVersions.catalogTag();
+        String toolsTag = catalogVersions.categoryTag("Tools");
+
+        when(productRepository.deleteProductById(1L)).thenReturn(1);
+        productService.deleteProduct(1L);
+
+        assertNotEquals(catalogTag, catalogVersions.catalogTag());
+        assertNotEquals(toolsTag, catalogVersions.categoryTag("Tools"));
+    }
+
+    @Test
+    void testPatchProductNameReindexesRow() {
+        Product patched = new Product("Renamed", "Category", 100.0, "Description");
+        patched.setId(1L);
+        ProductPatch patch = new ProductPatch("Renamed", null, null, null, 0L);
+        rebuildIndexes();
+
+        when(productRepository.patch(1L, 0L, patch)).thenReturn(1);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(patched));
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(patched));
+
+        productService.patchProduct(1L, patch);
+
+        assertEquals(List.of(patched), productService.searchProducts("renamed", 0, 10).items());
+    }
+
+    @Test
+    void testPatchProductVersionConflict() {
+        ProductPatch patch = new ProductPatch(null, null, 120.0, null, 3L);
+
+        when(productRepository.patch(1L, 3L, patch)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(ProductVersionConflictException.class, () -> productService.patchProduct(1L, patch));
+        verifyNoInteractions(changeLog);
+    }
+
+    @Test
+    void testPatchProductNotFound() {
+        ProductPatch patch = new ProductPatch(null, null, 120.0, null, 3L);
+
+        when(productRepository.patch(1L, 3L, patch)).thenReturn(0);
+        when(productRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(ProductNotFoundException.class, () -> productService.patchProduct(1L, patch));
+    }
+
+    @Test
+    void testPatchProductInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.patchProduct(1L, new ProductPatch(null, null, 120.0, null, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.patchProduct(1L, new ProductPatch(null, null, null, null, 1L)));
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.patchProduct(0L, new ProductPatch(null, null, 120.0, null, 1L)));
+    }
+
+    @Test
+    void testCreateProductsReportsEachItem() {
+        Product first = new Product("First", "Category", 100.0, "Description");
+        Product withId = new Product("WithId", "Category", 100.0, "Description");
+        withId.setId(9L);
+        Product second = new Product("Second", "Category", 50.0, "Description");
+        Product third = new Product("Third", "Category", 75.0, "Description");
+
+        when(batchWriter.insert(List.of(first, second))).thenAnswer(invocation -> {
+            first.setId(1L);
+            second.setId(2L);
+            return List.of(first, second);
+        });
+        when(batchWriter.insert(List.of(third))).thenThrow(new IllegalStateException("Duplicate entry"));
+
+        BulkResult result = productService.createProducts(Arrays.asList(first, withId, null, second, third));
+
+        assertEquals(2, result.succeeded());
+        assertEquals(3, result.failed());
+        assertEquals(BulkItemStatus.CREATED, result.items().get(0).status());
+        assertEquals(1L, result.items().get(0).id());
+        assertEquals(BulkItemStatus.FAILED, result.items().get(1).status());
+        assertEquals(BulkItemStatus.FAILED, result.items().get(2).status());
+        assertEquals(BulkItemStatus.CREATED, result.items().get(3).status());
+        assertEquals("Duplicate entry", result.items().get(4).error());
+        assertEquals(0, productService.getCacheStats().size());
+    }
+
+    @Test
+    void testUpdateProductsReportsMissingIds() {
+        Product existing = new Product("Updated", "Category", 100.0, "Description");
+        existing.setId(1L);
+        Product missing = new Product("Missing", "Category", 100.0, "Description");
+        missing.setId(2L);
+
+        when(batchWriter.update(List.of(existing, missing))).thenReturn(Map.of(1L, existing));
+
+        BulkResult result = productService.updateProducts(List.of(existing, missing));
+
+        assertEquals(1, result.succeeded());
+        assertEquals(BulkItemStatus.UPDATED, result.items().get(0).status());
+        assertEquals(BulkItemStatus.NOT_FOUND, result.items().get(1).status());
+        assertEquals(2L, result.items().get(1).id());
+    }
+
+    @Test
+    void testDeleteProductsReportsMissingIds() {
+        when(batchWriter.delete(List.of(1L, 2L))).thenReturn(Set.of(1L));
+        when(batchWriter.delete(List.of(3L))).thenReturn(Set.of(3L));
+
+        BulkResult result = productService.deleteProducts(List.of(1L, 2L, 3L));
+
+        assertEquals(2, result.succeeded());
+        assertEquals(BulkItemStatus.DELETED, result.items().get(0).status());
+        assertEquals(BulkItemStatus.NOT_FOUND, result.items().get(1).status());
+        assertEquals(BulkItemStatus.DELETED, result.items().get(2).status());
+    }
 }